@@ -13,6 +13,8 @@ import {Notification} from './models/notification';
 import {ChatService} from '../../services/services/chat.service';
 import {PickerComponent} from '@ctrl/ngx-emoji-mart';
 import {EmojiData} from '@ctrl/ngx-emoji-mart/ngx-emoji';
+import {HttpClient} from '@angular/common/http';
+import {ApiConfiguration} from '../../services/api-configuration';
 
 @Component({
 selector: 'app-main',
@@ -35,11 +37,17 @@ messageContent: string = '';
 showEmojis = false;
 @ViewChild('scrollableDiv') scrollableDiv!: ElementRef<HTMLDivElement>;
 private notificationSubscription: any;
+// object URLs of media fetched with the bearer token, keyed by media URL
+private mediaSources = new Map<string, string>();
+// signed links of video and audio, keyed by message id
+private mediaLinks = new Map<number, {url: string, expiresAt?: number}>();
 
 constructor(
     private chatService: ChatService,
     private messageService: MessageService,
     private keycloakService: KeycloakService,
+    private http: HttpClient,
+    private apiConfiguration: ApiConfiguration,
   ) {
   }
 
@@ -53,6 +61,9 @@ constructor(
       this.notificationSubscription.unsubscribe();
       this.socketClient = null;
     }
+    this.mediaSources.forEach(source => URL.revokeObjectURL(source));
+    this.mediaSources.clear();
+    this.mediaLinks.clear();
   }
 
   ngOnInit(): void {
@@ -71,6 +82,54 @@ constructor(
     return message.senderId === this.keycloakService.userId;
   }
 
+  mediaSource(message: MessageResponse): string {
+    const url = message.type === 'IMAGE' ? message.previewUrl ?? message.mediaUrl : message.mediaUrl;
+    if (!url) {
+      return '';
+    }
+    if (url.startsWith('blob:')) {
+      return url;
+    }
+    if (message.type !== 'IMAGE') {
+      return this.mediaLink(message);
+    }
+    const source = this.mediaSources.get(url);
+    if (source !== undefined) {
+      return source;
+    }
+    // the media endpoint needs the bearer token, which an <img> src cannot send
+    this.mediaSources.set(url, '');
+    this.http.get(this.apiConfiguration.rootUrl + url, {responseType: 'blob'})
+      .subscribe({
+        next: (blob) => {
+          this.mediaSources.set(url, URL.createObjectURL(blob));
+        },
+        error: () => this.mediaSources.delete(url)
+      });
+    return message.placeholder ?? '';
+  }
+
+  // players range-request the media themselves, from a signed link instead of a downloaded blob
+  private mediaLink(message: MessageResponse): string {
+    const id = message.id as number;
+    const link = this.mediaLinks.get(id);
+    if (link !== undefined && (link.expiresAt === undefined || link.expiresAt > Date.now())) {
+      return link.url;
+    }
+    this.mediaLinks.set(id, {url: link?.url ?? ''});
+    this.messageService.getMediaUrl({'message-id': id})
+      .subscribe({
+        next: (response) => {
+          this.mediaLinks.set(id, {
+            url: this.apiConfiguration.rootUrl + response.url,
+            expiresAt: new Date(response.expiresAt as string).getTime()
+          });
+        },
+        error: () => this.mediaLinks.delete(id)
+      });
+    return link?.url ?? '';
+  }
+
   sendMessage() {
     if (this.messageContent) {
       const messageRequest: MessageRequest = {
@@ -119,34 +178,30 @@ constructor(
   uploadMedia(target: EventTarget | null) {
     const file = this.extractFileFromTarget(target);
     if (file !== null) {
-      const reader = new FileReader();
-      reader.onload = () => {
-        if (reader.result) {
-
-          const mediaLines = reader.result.toString().split(',')[1];
-
-          this.messageService.uploadMedia({
-            'chat-id': this.selectedChat.id as string,
-            body: {
-              file: file
-            }
-          }).subscribe({
-            next: () => {
-              const message: MessageResponse = {
-                senderId: this.getSenderId(),
-                receiverId: this.getReceiverId(),
-                content: 'Attachment',
-                type: 'IMAGE',
-                state: 'SENT',
-                media: [mediaLines],
-                createdAt: new Date().toString()
-              };
-              this.chatMessages.push(message);
-            }
-          });
+      this.messageService.uploadMedia({
+        'chat-id': this.selectedChat.id as string,
+        body: {
+          file: file
         }
-      }
-      reader.readAsDataURL(file);
+      }).subscribe({
+        next: () => {
+          // shown from the local file until the chat is reloaded from the server
+          const localUrl = URL.createObjectURL(file);
+          this.mediaSources.set(localUrl, localUrl);
+          const message: MessageResponse = {
+            senderId: this.getSenderId(),
+            receiverId: this.getReceiverId(),
+            content: 'Attachment',
+            type: this.mediaType(file),
+            state: 'SENT',
+            mediaUrl: localUrl,
+            mediaContentType: file.type,
+            mediaSize: file.size,
+            createdAt: new Date().toString()
+          };
+          this.chatMessages.push(message);
+        }
+      });
     }
   }
 
@@ -208,19 +263,34 @@ constructor(
 
   private handleNotification(notification: Notification) {
     if (!notification) return;
+    if (notification.type === 'BATCH') {
+      notification.notifications?.forEach(n => this.handleNotification(n));
+      return;
+    }
+    if (notification.type === 'RETRACTED') {
+      // the server could not store a message it had already announced
+      this.chatMessages = this.chatMessages.filter(m => m.id !== notification.messageId);
+      return;
+    }
     if (this.selectedChat && this.selectedChat.id === notification.chatId) {
       switch (notification.type) {
         case 'MESSAGE':
         case 'IMAGE':
+        case 'VIDEO':
+        case 'AUDIO':
           const message: MessageResponse = {
+            id: notification.messageId,
             senderId: notification.senderId,
             receiverId: notification.receiverId,
             content: notification.content,
             type: notification.messageType,
-            media: notification.media,
+            mediaUrl: notification.mediaUrl,
+            previewUrl: notification.previewUrl,
+            mediaContentType: notification.mediaContentType,
+            mediaSize: notification.mediaSize,
             createdAt: new Date().toString()
           };
-          if (notification.type === 'IMAGE') {
+          if (notification.type !== 'MESSAGE') {
             this.selectedChat.lastMessage = 'Attachment';
           } else {
             this.selectedChat.lastMessage = notification.content;
@@ -236,7 +306,7 @@ constructor(
       if (destChat && notification.type !== 'SEEN') {
         if (notification.type === 'MESSAGE') {
           destChat.lastMessage = notification.content;
-        } else if (notification.type === 'IMAGE') {
+        } else {
           destChat.lastMessage = 'Attachment';
         }
         destChat.lastMessageTime = new Date().toString();
@@ -277,6 +347,16 @@ constructor(
     }
   }
 
+  private mediaType(file: File): 'IMAGE' | 'VIDEO' | 'AUDIO' {
+    if (file.type.startsWith('video/')) {
+      return 'VIDEO';
+    }
+    if (file.type.startsWith('audio/')) {
+      return 'AUDIO';
+    }
+    return 'IMAGE';
+  }
+
   private extractFileFromTarget(target: EventTarget | null): File | null {
     const htmlInputTarget = target as HTMLInputElement;
     if (target === null || htmlInputTarget.files === null) {
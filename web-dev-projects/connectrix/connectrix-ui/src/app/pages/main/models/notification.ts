@@ -4,7 +4,12 @@ content?: string;
 senderId?: string;
 receiverId?: string;
 messageType?: 'TEXT' | 'IMAGE' | 'VIDEO' | 'AUDIO';
-type?: 'SEEN' | 'MESSAGE' | 'IMAGE' | 'VIDEO' | 'AUDIO';
+type?: 'SEEN' | 'MESSAGE' | 'IMAGE' | 'VIDEO' | 'AUDIO' | 'BATCH' | 'RETRACTED';
+messageId?: number;
 chatName?: string;
-media?: Array<string>;
+mediaUrl?: string;
+previewUrl?: string;
+mediaContentType?: string;
+mediaSize?: number;
+notifications?: Array<Notification>;
 }
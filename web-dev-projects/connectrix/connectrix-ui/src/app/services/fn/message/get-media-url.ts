@@ -0,0 +1,33 @@
+/* tslint:disable */
+/* eslint-disable */
+/* Code generated by ng-openapi-gen DO NOT EDIT. */
+
+import { HttpClient, HttpContext, HttpResponse } from '@angular/common/http';
+import { Observable } from 'rxjs';
+import { filter, map } from 'rxjs/operators';
+import { StrictHttpResponse } from '../../strict-http-response';
+import { RequestBuilder } from '../../request-builder';
+
+import { MediaUrlResponse } from '../../models/media-url-response';
+
+export interface GetMediaUrl$Params {
+  'message-id': number;
+}
+
+export function getMediaUrl(http: HttpClient, rootUrl: string, params: GetMediaUrl$Params, context?: HttpContext): Observable<StrictHttpResponse<MediaUrlResponse>> {
+  const rb = new RequestBuilder(rootUrl, getMediaUrl.PATH, 'get');
+  if (params) {
+    rb.path('message-id', params['message-id'], {});
+  }
+
+  return http.request(
+    rb.build({ responseType: 'json', accept: 'application/json', context })
+  ).pipe(
+    filter((r: any): r is HttpResponse<any> => r instanceof HttpResponse),
+    map((r: HttpResponse<any>) => {
+      return r as StrictHttpResponse<MediaUrlResponse>;
+    })
+  );
+}
+
+getMediaUrl.PATH = '/api/v1/messages/{message-id}/media-url';
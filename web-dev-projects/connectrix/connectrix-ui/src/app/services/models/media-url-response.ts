@@ -0,0 +1,8 @@
+/* tslint:disable */
+/* eslint-disable */
+/* Code generated by ng-openapi-gen DO NOT EDIT. */
+
+export interface MediaUrlResponse {
+  expiresAt?: string;
+  url?: string;
+}
@@ -6,7 +6,11 @@ export interface MessageResponse {
   content?: string;
   createdAt?: string;
   id?: number;
-  media?: Array<string>;
+  mediaContentType?: string;
+  mediaSize?: number;
+  mediaUrl?: string;
+  placeholder?: string;
+  previewUrl?: string;
   receiverId?: string;
   senderId?: string;
   state?: 'SENT' | 'SEEN';
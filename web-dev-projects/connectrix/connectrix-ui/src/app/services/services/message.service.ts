@@ -14,6 +14,9 @@ import { StrictHttpResponse } from '../strict-http-response';
 import { getAllMessages } from '../fn/message/get-all-messages';
 import { GetAllMessages$Params } from '../fn/message/get-all-messages';
 import { MessageResponse } from '../models/message-response';
+import { getMediaUrl } from '../fn/message/get-media-url';
+import { GetMediaUrl$Params } from '../fn/message/get-media-url';
+import { MediaUrlResponse } from '../models/media-url-response';
 import { saveMessage } from '../fn/message/save-message';
 import { SaveMessage$Params } from '../fn/message/save-message';
 import { setMessageToSeen } from '../fn/message/set-message-to-seen';
@@ -127,4 +130,29 @@ export class MessageService extends BaseService {
     );
   }
 
+  /** Path part for operation `getMediaUrl()` */
+  static readonly GetMediaUrlPath = '/api/v1/messages/{message-id}/media-url';
+
+  /**
+   * This method provides access to the full `HttpResponse`, allowing access to response headers.
+   * To access only the response body, use `getMediaUrl()` instead.
+   *
+   * This method doesn't expect any request body.
+   */
+  getMediaUrl$Response(params: GetMediaUrl$Params, context?: HttpContext): Observable<StrictHttpResponse<MediaUrlResponse>> {
+    return getMediaUrl(this.http, this.rootUrl, params, context);
+  }
+
+  /**
+   * This method provides access only to the response body.
+   * To access the full response (for headers, for example), `getMediaUrl$Response()` instead.
+   *
+   * This method doesn't expect any request body.
+   */
+  getMediaUrl(params: GetMediaUrl$Params, context?: HttpContext): Observable<MediaUrlResponse> {
+    return this.getMediaUrl$Response(params, context).pipe(
+      map((r: StrictHttpResponse<MediaUrlResponse>): MediaUrlResponse => r.body)
+    );
+  }
+
 }
@@ -2,8 +2,6 @@ package com.connectrix_back.connectrix.chat;
 
 import com.connectrix_back.connectrix.common.BaseAuditingEntity;
 import com.connectrix_back.connectrix.message.Message;
-import com.connectrix_back.connectrix.message.MessageState;
-import com.connectrix_back.connectrix.message.MessageType;
 import com.connectrix_back.connectrix.user.User;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -17,11 +15,12 @@ import jakarta.persistence.OrderBy;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 import static jakarta.persistence.GenerationType.UUID;
@@ -32,11 +31,16 @@ import static jakarta.persistence.GenerationType.UUID;
 @NoArgsConstructor
 @Entity
 @Table(name = "chat")
+// participants never change, but the audit columns do, so cached chats stay read-write
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ChatConstants.CACHE_REGION)
 @NamedQuery(name = ChatConstants.FIND_CHAT_BY_SENDER_ID,
         query = "SELECT DISTINCT c FROM Chat c WHERE c.sender.id = :senderId OR c.recipient.id = :senderId ORDER BY createdDate DESC"
 )
 @NamedQuery(name = ChatConstants.FIND_CHAT_BY_SENDER_ID_AND_RECEIVER,
-        query = "SELECT DISTINCT c FROM Chat c WHERE (c.sender.id = :senderId AND c.recipient.id = :recipientId) OR (c.sender.id = :recipientId AND c.recipient.id = :senderId) ORDER BY createdDate DESC"
+        query = "SELECT c FROM Chat c WHERE least(c.sender.id, c.recipient.id) = least(:senderId, :recipientId) AND greatest(c.sender.id, c.recipient.id) = greatest(:senderId, :recipientId)"
+)
+@NamedQuery(name = ChatConstants.FIND_CHAT_PARTNER_IDS,
+        query = "SELECT CASE WHEN c.sender.id = :userId THEN c.recipient.id ELSE c.sender.id END FROM Chat c WHERE c.sender.id = :userId OR c.recipient.id = :userId"
 )
 public class Chat extends BaseAuditingEntity {
     @Id
@@ -48,7 +52,7 @@ public class Chat extends BaseAuditingEntity {
     @ManyToOne
     @JoinColumn(name = "recipient_id")
     private User recipient;
-    @OneToMany(mappedBy = "chat", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "chat", fetch = FetchType.LAZY)
     @OrderBy("createdDate DESC")
     private List<Message> messages;
 
@@ -66,32 +70,4 @@ public class Chat extends BaseAuditingEntity {
         }
         return recipient.getFirstName() + " " + recipient.getLastName();
     }
-
-    @Transient
-    public long getUnreadMessages(String senderId) {
-        return this.messages
-                .stream()
-                .filter(m -> m.getReceiverId().equals(senderId))
-                .filter(m -> MessageState.SENT == m.getState())
-                .count();
-    }
-
-    @Transient
-    public String getLastMessage() {
-        if (messages != null && !messages.isEmpty()) {
-            if (messages.get(0).getType() != MessageType.TEXT) {
-                return "Attachment";
-            }
-            return messages.get(0).getContent();
-        }
-        return null; // No messages available
-    }
-
-    @Transient
-    public LocalDateTime getLastMessageTime() {
-        if (messages != null && !messages.isEmpty()) {
-            return messages.get(0).getCreatedDate();
-        }
-        return null;
-    }
 }
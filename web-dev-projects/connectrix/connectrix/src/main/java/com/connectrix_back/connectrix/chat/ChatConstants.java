@@ -4,6 +4,9 @@ public class ChatConstants {
 
     public static final String FIND_CHAT_BY_SENDER_ID = "Chat.findChatsByReceiverId";
     public static final String FIND_CHAT_BY_SENDER_ID_AND_RECEIVER = "Chat.findChatsByReceiverIdAndReceiver";
+    public static final String FIND_CHAT_PARTNER_IDS = "Chat.findChatPartnerIds";
+
+    public static final String CACHE_REGION = "chat";
 
     private ChatConstants() {}
 }
@@ -1,8 +1,10 @@
 package com.connectrix_back.connectrix.chat;
 
 import com.connectrix_back.connectrix.common.StringResponse;
+import com.connectrix_back.connectrix.common.VersionStampService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,6 +12,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -20,6 +23,7 @@ import java.util.List;
 public class ChatController {
 
     private final ChatService chatService;
+    private final VersionStampService versionStampService;
 
     @PostMapping
     public ResponseEntity<StringResponse> createChat(
@@ -34,7 +38,14 @@ public class ChatController {
     }
 
     @GetMapping
-    public ResponseEntity<List<ChatResponse>> getChatsByReceiver(Authentication authentication) {
-        return ResponseEntity.ok(chatService.getChatsByReceiverId(authentication));
+    public ResponseEntity<List<ChatResponse>> getChatsByReceiver(Authentication authentication, WebRequest request) {
+        final String eTag = versionStampService.chatListETag(authentication.getName());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(eTag)
+                .body(chatService.getChatsByReceiverId(authentication));
     }
 }
@@ -1,19 +1,61 @@
 package com.connectrix_back.connectrix.chat;
 
+import com.connectrix_back.connectrix.message.MessageType;
+import com.connectrix_back.connectrix.notification.NotificationRelay;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
+@RequiredArgsConstructor
 public class ChatMapper {
-    public ChatResponse toChatResponse(Chat chat, String senderId) {
+
+    // connections on other nodes count too
+    private final NotificationRelay notificationRelay;
+
+    public List<ChatResponse> toChatResponses(List<ChatSummary> chats, String userId) {
+        final Set<String> connected = notificationRelay.connectedAmong(
+                chats.stream().map(chat -> getPartnerId(chat, userId)).collect(Collectors.toSet()));
+        return chats.stream()
+                .map(chat -> toChatResponse(chat, userId, connected))
+                .toList();
+    }
+
+    private ChatResponse toChatResponse(ChatSummary chat, String userId, Set<String> connected) {
         return ChatResponse.builder()
                 .id(chat.getId())
-                .name(chat.getChatName(senderId))
-                .unreadCount(chat.getUnreadMessages(senderId))
-                .lastMessage(chat.getLastMessage())
+                .name(getChatName(chat, userId))
+                .unreadCount(chat.getUnreadCount())
+                .lastMessage(getLastMessage(chat))
                 .lastMessageTime(chat.getLastMessageTime())
-                .isRecipientOnline(chat.getRecipient().isUserOnline())
-                .senderId(chat.getSender().getId())
-                .receiverId(chat.getRecipient().getId())
+                .isRecipientOnline(connected.contains(getPartnerId(chat, userId)))
+                .senderId(chat.getSenderId())
+                .receiverId(chat.getRecipientId())
                 .build();
     }
+
+    // the chat's other participant, whichever side of it the user is on
+    private String getPartnerId(ChatSummary chat, String userId) {
+        return chat.getSenderId().equals(userId) ? chat.getRecipientId() : chat.getSenderId();
+    }
+
+    private String getChatName(ChatSummary chat, String senderId) {
+        if (chat.getRecipientId().equals(senderId)) {
+            return chat.getSenderFirstName() + " " + chat.getSenderLastName();
+        }
+        return chat.getRecipientFirstName() + " " + chat.getRecipientLastName();
+    }
+
+    private String getLastMessage(ChatSummary chat) {
+        if (chat.getLastMessageType() == null) {
+            return null;
+        }
+        if (chat.getLastMessageType() != MessageType.TEXT) {
+            return "Attachment";
+        }
+        return chat.getLastMessageContent();
+    }
 }
@@ -1,7 +1,10 @@
 package com.connectrix_back.connectrix.chat;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
@@ -12,6 +15,48 @@ public interface ChatRepository extends JpaRepository<Chat, String> {
     @Query(name = ChatConstants.FIND_CHAT_BY_SENDER_ID)
     List<Chat> findChatsBySenderId(@Param("senderId") String senderId);
 
+    @Query(value = """
+            SELECT c.id AS id,
+                   s.id AS senderId,
+                   s.first_name AS senderFirstName,
+                   s.last_name AS senderLastName,
+                   r.id AS recipientId,
+                   r.first_name AS recipientFirstName,
+                   r.last_name AS recipientLastName,
+                   lm.content AS lastMessageContent,
+                   lm.type AS lastMessageType,
+                   lm.created_date AS lastMessageTime,
+                   (SELECT count(*)
+                      FROM messages um
+                     WHERE um.chat_id = c.id
+                       AND um.receiver_id = :userId
+                       AND um.state = 'SENT'
+                       AND um.id > COALESCE(w.last_read_message_id, 0)) AS unreadCount
+              FROM chat c
+              JOIN users s ON s.id = c.sender_id
+              JOIN users r ON r.id = c.recipient_id
+              LEFT JOIN read_watermarks w ON w.chat_id = c.id AND w.user_id = :userId
+              LEFT JOIN LATERAL (
+                   SELECT m.content, m.type, m.created_date
+                     FROM messages m
+                    WHERE m.chat_id = c.id
+                    ORDER BY m.created_date DESC, m.id DESC
+                    LIMIT 1) lm ON TRUE
+             WHERE c.sender_id = :userId OR c.recipient_id = :userId
+             ORDER BY c.created_date DESC
+            """, nativeQuery = true)
+    List<ChatSummary> findChatSummariesByUserId(@Param("userId") String userId);
+
+    // presence fan-out runs this on every connect and disconnect
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(name = ChatConstants.FIND_CHAT_PARTNER_IDS)
+    List<String> findChatPartnerIds(@Param("userId") String userId);
+
+    // serializes creating the chat of a pair across nodes until the transaction ends
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext(least(:senderId, :recipientId) || ':' || greatest(:senderId, :recipientId)))) AS l",
+            nativeQuery = true)
+    Integer lockParticipants(@Param("senderId") String senderId, @Param("recipientId") String recipientId);
+
     @Query(name = ChatConstants.FIND_CHAT_BY_SENDER_ID_AND_RECEIVER)
     Optional<Chat> findChatByReceiverAndSender(@Param("senderId") String id, @Param("recipientId") String recipientId);
 }
@@ -1,5 +1,7 @@
 package com.connectrix_back.connectrix.chat;
 
+import com.connectrix_back.connectrix.common.VersionStampService;
+import com.connectrix_back.connectrix.sync.SyncService;
 import com.connectrix_back.connectrix.user.User;
 import com.connectrix_back.connectrix.user.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
@@ -18,33 +20,37 @@ public class ChatService {
     private final ChatRepository chatRepository;
     private final UserRepository userRepository;
     private final ChatMapper mapper;
+    private final VersionStampService versionStampService;
+    private final SyncService syncService;
 
     @Transactional(readOnly = true)
     public List<ChatResponse> getChatsByReceiverId(Authentication currentUser) {
         final String userId = currentUser.getName();
-        return chatRepository.findChatsBySenderId(userId)
-                .stream()
-                .map(c -> mapper.toChatResponse(c, userId))
-                .toList();
+        return mapper.toChatResponses(chatRepository.findChatSummariesByUserId(userId), userId);
     }
 
+    @Transactional
     public String createChat(String senderId, String receiverId) {
 
+        // a concurrent request for the same pair waits here and then finds the chat created first
+        chatRepository.lockParticipants(senderId, receiverId);
         Optional<Chat> existingChat = chatRepository.findChatByReceiverAndSender(senderId, receiverId);
         if (existingChat.isPresent()) {
             return existingChat.get().getId();
         }
 
-        User sender = userRepository.findByPublicId(senderId)
+        User sender = userRepository.findById(senderId)
                 .orElseThrow(() ->  new EntityNotFoundException("User with id " + senderId + " not found"));
-        User receiver = userRepository.findByPublicId(receiverId)
+        User receiver = userRepository.findById(receiverId)
                 .orElseThrow(() ->  new EntityNotFoundException("User with id " + receiverId + " not found"));
 
         Chat chat = new Chat();
         chat.setSender(sender);
         chat.setRecipient(receiver);
 
-        Chat savedChat = chatRepository.save(chat);
+        final Chat savedChat = chatRepository.save(chat);
+        versionStampService.bump(List.of(), List.of(senderId, receiverId));
+        syncService.recordChat(savedChat);
         return savedChat.getId();
     }
 }
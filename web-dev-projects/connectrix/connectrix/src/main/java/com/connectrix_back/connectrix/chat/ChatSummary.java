@@ -0,0 +1,30 @@
+package com.connectrix_back.connectrix.chat;
+
+import com.connectrix_back.connectrix.message.MessageType;
+
+import java.time.LocalDateTime;
+
+public interface ChatSummary {
+
+    String getId();
+
+    String getSenderId();
+
+    String getSenderFirstName();
+
+    String getSenderLastName();
+
+    String getRecipientId();
+
+    String getRecipientFirstName();
+
+    String getRecipientLastName();
+
+    String getLastMessageContent();
+
+    MessageType getLastMessageType();
+
+    LocalDateTime getLastMessageTime();
+
+    long getUnreadCount();
+}
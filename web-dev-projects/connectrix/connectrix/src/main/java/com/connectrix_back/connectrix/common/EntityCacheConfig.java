@@ -0,0 +1,59 @@
+package com.connectrix_back.connectrix.common;
+
+import com.connectrix_back.connectrix.chat.ChatConstants;
+import com.connectrix_back.connectrix.user.UserConstants;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Regions of the Hibernate second-level cache, held in Caffeine through JCache. Entities and
+ * query results expire after a while because writes made by other nodes never reach this cache.
+ */
+@Configuration
+public class EntityCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(@Value("${application.entity-cache.max-size}") long maxSize,
+                                           @Value("${application.entity-cache.expire-after-write}") Duration expireAfterWrite,
+                                           @Value("${application.entity-cache.query-results.max-size}") long queryResultsMaxSize,
+                                           @Value("${application.entity-cache.query-results.expire-after-write}") Duration queryResultsExpireAfterWrite) {
+        // a manager of its own, so several application contexts in one JVM do not share regions
+        final CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("connectrix-entity-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(UserConstants.CACHE_REGION, region(maxSize, expireAfterWrite));
+        cacheManager.createCache(ChatConstants.CACHE_REGION, region(maxSize, expireAfterWrite));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                region(queryResultsMaxSize, queryResultsExpireAfterWrite));
+        // evicting a table's last update time could serve stale query results, one entry per table
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxSize, Duration expireAfterWrite) {
+        return new CaffeineConfiguration<>()
+                .setMaximumSize(OptionalLong.of(maxSize))
+                .setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+    }
+}
@@ -0,0 +1,25 @@
+package com.connectrix_back.connectrix.common;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "version_stamps")
+public class VersionStamp {
+
+    @Id
+    @Column(name = "stamp_key")
+    private String key;
+    @Column(nullable = false)
+    private Long version;
+}
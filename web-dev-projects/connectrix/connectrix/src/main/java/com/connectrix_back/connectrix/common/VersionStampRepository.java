@@ -0,0 +1,24 @@
+package com.connectrix_back.connectrix.common;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface VersionStampRepository extends JpaRepository<VersionStamp, String> {
+
+    // keys are upserted in sorted order so concurrent bumps of overlapping keys cannot deadlock,
+    // the new versions come back so callers know which state their transaction produced
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "version_stamps"))
+    @Query(value = """
+            INSERT INTO version_stamps (stamp_key, version)
+            SELECT k, 1 FROM unnest(CAST(:keys AS TEXT[])) AS k ORDER BY k
+            ON CONFLICT (stamp_key) DO UPDATE SET version = version_stamps.version + 1
+            RETURNING stamp_key AS key, version AS version
+            """, nativeQuery = true)
+    List<VersionStampView> bump(@Param("keys") String[] keys);
+}
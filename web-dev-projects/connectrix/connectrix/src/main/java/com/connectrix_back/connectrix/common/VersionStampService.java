@@ -0,0 +1,62 @@
+package com.connectrix_back.connectrix.common;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Versions of the chat list of a user and of the history of a chat, used as ETags. A stamp
+ * must only be bumped once the change it stands for is visible to readers.
+ */
+@Service
+@RequiredArgsConstructor
+public class VersionStampService {
+
+    private static final String CHAT_PREFIX = "chat:";
+    private static final String USER_PREFIX = "user:";
+
+    private final VersionStampRepository versionStampRepository;
+
+    /**
+     * Returns the versions the bumped chats have once the calling transaction commits.
+     */
+    @Transactional
+    public Map<String, Long> bump(Collection<String> chatIds, Collection<String> userIds) {
+        final TreeSet<String> keys = new TreeSet<>();
+        chatIds.forEach(chatId -> keys.add(CHAT_PREFIX + chatId));
+        userIds.forEach(userId -> keys.add(USER_PREFIX + userId));
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        return versionStampRepository.bump(keys.toArray(String[]::new)).stream()
+                .filter(stamp -> stamp.getKey().startsWith(CHAT_PREFIX))
+                .collect(Collectors.toMap(stamp -> stamp.getKey().substring(CHAT_PREFIX.length()), VersionStampView::getVersion));
+    }
+
+    public long chatVersion(String chatId) {
+        return versionOf(CHAT_PREFIX + chatId);
+    }
+
+    public String chatETag(String chatId) {
+        return chatETag(chatVersion(chatId));
+    }
+
+    public String chatETag(long chatVersion) {
+        return "\"c" + chatVersion + "\"";
+    }
+
+    public String chatListETag(String userId) {
+        return "\"u" + versionOf(USER_PREFIX + userId) + "\"";
+    }
+
+    private long versionOf(String key) {
+        return versionStampRepository.findById(key)
+                .map(VersionStamp::getVersion)
+                .orElse(0L);
+    }
+}
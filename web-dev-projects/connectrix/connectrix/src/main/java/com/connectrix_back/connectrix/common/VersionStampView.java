@@ -0,0 +1,8 @@
+package com.connectrix_back.connectrix.common;
+
+public interface VersionStampView {
+
+    String getKey();
+
+    Long getVersion();
+}
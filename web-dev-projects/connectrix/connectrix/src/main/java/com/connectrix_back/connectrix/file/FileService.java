@@ -1,72 +1,169 @@
 package com.connectrix_back.connectrix.file;
 
 import jakarta.annotation.Nonnull;
+import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
-import static java.io.File.separator;
-import static java.lang.System.currentTimeMillis;
-
+/**
+ * Stores uploaded media once per SHA-256 of its content under {@code objects/ab/cd/<hash>}.
+ * Uploads are streamed through a fixed buffer into a temporary file and moved in place once
+ * hashed; {@code media_objects} counts the messages referencing each file.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class FileService {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final MediaObjectRepository mediaObjectRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MediaCache mediaCache;
+
     @Value("${application.file.uploads.media-output-path}")
     private String fileUploadPath;
 
-    public String saveFile(
-            @Nonnull MultipartFile sourceFile,
-            @Nonnull String userId
-    ) {
-        final String fileUploadSubPath = "users" + separator + userId;
-        return uploadFile(sourceFile, fileUploadSubPath);
+    public StoredMedia saveFile(@Nonnull MultipartFile sourceFile) {
+        final Path tempFile;
+        final String hash;
+        final long size;
+        try {
+            final Path tempFolder = Files.createDirectories(Paths.get(fileUploadPath, "tmp"));
+            tempFile = Files.createTempFile(tempFolder, "upload-", ".part");
+            final MessageDigest digest = newDigest();
+            try (InputStream in = sourceFile.getInputStream();
+                 OutputStream out = Files.newOutputStream(tempFile)) {
+                size = copy(in, out, digest);
+            } catch (IOException e) {
+                Files.deleteIfExists(tempFile);
+                throw e;
+            }
+            hash = HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store uploaded file", e);
+        }
+
+        final Path target = objectPath(hash);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                mediaObjectRepository.lockHash(hash);
+                moveIntoPlace(tempFile, target);
+                mediaObjectRepository.acquire(hash, target.toString(), size);
+            });
+        } finally {
+            deleteQuietly(tempFile);
+        }
+        log.debug("Stored media {} ({} bytes)", hash, size);
+        return StoredMedia.builder()
+                .hash(hash)
+                .filePath(target.toString())
+                .size(size)
+                .build();
     }
 
-    private String uploadFile(
-            @Nonnull MultipartFile sourceFile,
-            @Nonnull String fileUploadSubPath
-    ) {
-        final String finalUploadPath = fileUploadPath + separator + fileUploadSubPath;
-        File targetFolder = new File(finalUploadPath);
-
-        if (!targetFolder.exists()) {
-            boolean folderCreated = targetFolder.mkdirs();
-            if (!folderCreated) {
-                log.warn("Failed to create the target folder: " + targetFolder);
-                return null;
+    public void releaseFile(@Nonnull String hash) {
+        transactionTemplate.executeWithoutResult(status -> {
+            mediaObjectRepository.lockHash(hash);
+            mediaObjectRepository.release(hash);
+            if (mediaObjectRepository.deleteIfUnreferenced(hash) > 0) {
+                try {
+                    mediaCache.evict(objectPath(hash));
+                    Files.deleteIfExists(objectPath(hash));
+                    for (MediaVariant variant : MediaVariant.values()) {
+                        if (variant != MediaVariant.ORIGINAL) {
+                            mediaCache.evict(previewPath(hash, variant));
+                            Files.deleteIfExists(previewPath(hash, variant));
+                        }
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not delete unreferenced media {}", hash, e);
+                }
             }
+        });
+    }
+
+    public Resource loadFile(@Nonnull String filePath) {
+        final Path path = Paths.get(filePath);
+        if (!Files.isReadable(path)) {
+            log.warn("No file found in the path {}", filePath);
+            throw new EntityNotFoundException("Media file not found");
         }
-        final String fileExtension = getFileExtension(sourceFile.getOriginalFilename());
-        String targetFilePath = finalUploadPath + separator + currentTimeMillis() + "." + fileExtension;
-        Path targetPath = Paths.get(targetFilePath);
         try {
-            Files.write(targetPath, sourceFile.getBytes());
-            log.info("File saved to: " + targetFilePath);
-            return targetFilePath;
+            return mediaCache.load(path);
         } catch (IOException e) {
-            log.error("File was not saved", e);
+            throw new UncheckedIOException("Could not read media file " + filePath, e);
         }
-        return null;
     }
 
-    private String getFileExtension(String fileName) {
-        if (fileName == null || fileName.isEmpty()) {
-            return "";
+    public Path previewPath(@Nonnull String hash, @Nonnull MediaVariant variant) {
+        return Paths.get(fileUploadPath, "previews", hash.substring(0, 2), hash.substring(2, 4),
+                hash + "-" + variant.getMaxDimension() + ".jpg");
+    }
+
+    private Path objectPath(String hash) {
+        return Paths.get(fileUploadPath, "objects", hash.substring(0, 2), hash.substring(2, 4), hash);
+    }
+
+    private void moveIntoPlace(Path tempFile, Path target) {
+        try {
+            if (Files.exists(target)) {
+                return;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store uploaded file", e);
         }
-        int lastDotIndex = fileName.lastIndexOf(".");
-        if (lastDotIndex == -1) {
-            return "";
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary upload {}", file, e);
+        }
+    }
+
+    private static long copy(InputStream in, OutputStream out, MessageDigest digest) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            out.write(buffer, 0, read);
+            size += read;
+        }
+        return size;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
-        return fileName.substring(lastDotIndex + 1).toLowerCase();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+package com.connectrix_back.connectrix.file;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.core.io.AbstractResource;
+
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Media file content held in a {@link ByteBuffer}, a cached heap or direct copy of a small file.
+ * Every stream reads from its own view of the shared buffer.
+ */
+public class MediaBufferResource extends AbstractResource {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final Counter bytesServed;
+
+    public MediaBufferResource(Path path, ByteBuffer buffer, Counter bytesServed) {
+        this.path = path;
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.bytesServed = bytesServed;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public String getFilename() {
+        return path.getFileName().toString();
+    }
+
+    @Override
+    public String getDescription() {
+        return "media buffer [" + path + "]";
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new BufferInputStream(buffer.duplicate());
+    }
+
+    private final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer view;
+
+        private BufferInputStream(ByteBuffer view) {
+            this.view = view;
+        }
+
+        @Override
+        public int read() {
+            if (!view.hasRemaining()) {
+                return -1;
+            }
+            bytesServed.increment();
+            return view.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!view.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(length, view.remaining());
+            view.get(target, offset, count);
+            bytesServed.increment(count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            final int count = (int) Math.max(0, Math.min(n, view.remaining()));
+            view.position(view.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return view.remaining();
+        }
+
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            final long total = view.remaining();
+            final byte[] chunk = new byte[(int) Math.min(CHUNK_SIZE, Math.max(1, total))];
+            while (view.hasRemaining()) {
+                final int count = Math.min(chunk.length, view.remaining());
+                view.get(chunk, 0, count);
+                out.write(chunk, 0, count);
+                bytesServed.increment(count);
+            }
+            return total;
+        }
+    }
+}
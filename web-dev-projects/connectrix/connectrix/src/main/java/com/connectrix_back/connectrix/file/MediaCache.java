@@ -0,0 +1,88 @@
+package com.connectrix_back.connectrix.file;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps small, frequently served media files in memory, bounded by their total size. Files above
+ * the entry limit are served from disk as they are, streamed straight from the file without a copy
+ * on the heap. Media files are content addressed and never change, entries only go away on release.
+ */
+@Component
+public class MediaCache {
+
+    private final Cache<Path, ByteBuffer> cache;
+    private final long maxEntryBytes;
+    private final boolean offHeap;
+    private final Counter cachedBytesServed;
+    private final Counter fileBytesServed;
+
+    public MediaCache(MeterRegistry meterRegistry,
+                      @Value("${application.file.cache.max-size}") DataSize maxSize,
+                      @Value("${application.file.cache.max-entry-size}") DataSize maxEntrySize,
+                      @Value("${application.file.cache.off-heap}") boolean offHeap) {
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        this.offHeap = offHeap;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Path path, ByteBuffer buffer) -> buffer.capacity())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "media");
+        meterRegistry.gauge("connectrix.media.cache.hit.ratio", cache, c -> c.stats().hitRate());
+        meterRegistry.gauge("connectrix.media.cache.bytes", cache, c -> c.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L));
+        this.cachedBytesServed = meterRegistry.counter("connectrix.media.cache.bytes.served", "source", "cache");
+        this.fileBytesServed = meterRegistry.counter("connectrix.media.cache.bytes.served", "source", "file");
+    }
+
+    public Resource load(Path file) throws IOException {
+        final long size = Files.size(file);
+        if (size > maxEntryBytes) {
+            // counted when handed out, a range request may stream less
+            fileBytesServed.increment(size);
+            return new FileSystemResource(file);
+        }
+        try {
+            return new MediaBufferResource(file, cache.get(file, this::read), cachedBytesServed);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public void evict(Path file) {
+        cache.invalidate(file);
+    }
+
+    private ByteBuffer read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final int size = (int) channel.size();
+            final ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    break;
+                }
+            }
+            return buffer.flip();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
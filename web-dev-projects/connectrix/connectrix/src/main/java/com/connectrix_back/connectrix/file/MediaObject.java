@@ -0,0 +1,34 @@
+package com.connectrix_back.connectrix.file;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "media_objects")
+public class MediaObject {
+
+    @Id
+    private String hash;
+    @Column(name = "file_path", nullable = false)
+    private String filePath;
+    @Column(nullable = false)
+    private Long size;
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+    @Column(columnDefinition = "TEXT")
+    private String placeholder;
+    @Column(name = "created_date", nullable = false, insertable = false, updatable = false)
+    private LocalDateTime createdDate;
+}
@@ -0,0 +1,40 @@
+package com.connectrix_back.connectrix.file;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+public interface MediaObjectRepository extends JpaRepository<MediaObject, String> {
+
+    // serializes storing and releasing the same content across nodes until the transaction ends
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext(:hash))) AS l", nativeQuery = true)
+    Integer lockHash(@Param("hash") String hash);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "media_objects"))
+    @Query(value = """
+            INSERT INTO media_objects (hash, file_path, size, ref_count)
+            VALUES (:hash, :filePath, :size, 1)
+            ON CONFLICT (hash) DO UPDATE SET ref_count = media_objects.ref_count + 1
+            """, nativeQuery = true)
+    void acquire(@Param("hash") String hash, @Param("filePath") String filePath, @Param("size") long size);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "media_objects"))
+    @Query(value = "UPDATE media_objects SET ref_count = ref_count - 1 WHERE hash = :hash", nativeQuery = true)
+    int release(@Param("hash") String hash);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "media_objects"))
+    @Query(value = "UPDATE media_objects SET placeholder = :placeholder WHERE hash = :hash", nativeQuery = true)
+    int updatePlaceholder(@Param("hash") String hash, @Param("placeholder") String placeholder);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "media_objects"))
+    @Query(value = "DELETE FROM media_objects WHERE hash = :hash AND ref_count <= 0", nativeQuery = true)
+    int deleteIfUnreferenced(@Param("hash") String hash);
+}
@@ -0,0 +1,186 @@
+package com.connectrix_back.connectrix.file;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Generates JPEG previews for every {@link MediaVariant} but the original, plus a tiny placeholder
+ * stored on the media object, on a bounded executor after an image has been uploaded.
+ */
+@Service
+@Slf4j
+public class MediaPreviewService {
+
+    private static final int PLACEHOLDER_DIMENSION = 16;
+    private static final String PLACEHOLDER_PREFIX = "data:image/jpeg;base64,";
+
+    private final FileService fileService;
+    private final MediaObjectRepository mediaObjectRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final Timer generateTimer;
+    private final Counter rejected;
+    private final Counter failed;
+
+    public MediaPreviewService(FileService fileService,
+                               MediaObjectRepository mediaObjectRepository,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${application.file.previews.threads}") int threads,
+                               @Value("${application.file.previews.queue-capacity}") int queueCapacity) {
+        this.fileService = fileService;
+        this.mediaObjectRepository = mediaObjectRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("media-preview-"));
+        this.generateTimer = meterRegistry.timer("connectrix.media.previews.generate");
+        this.rejected = meterRegistry.counter("connectrix.media.previews.rejected");
+        this.failed = meterRegistry.counter("connectrix.media.previews.failed");
+        meterRegistry.gauge("connectrix.media.previews.queue.depth", executor.getQueue(), Queue::size);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public void generatePreviews(StoredMedia media) {
+        try {
+            executor.execute(() -> generateTimer.record(() -> generate(media)));
+        } catch (RejectedExecutionException e) {
+            // the original is served until previews exist
+            rejected.increment();
+            log.warn("Preview queue is full, skipping previews of media {}", media.getHash());
+        }
+    }
+
+    public Optional<Path> findPreview(String hash, MediaVariant variant) {
+        if (variant == MediaVariant.ORIGINAL) {
+            return Optional.empty();
+        }
+        final Path preview = fileService.previewPath(hash, variant);
+        return Files.isReadable(preview) ? Optional.of(preview) : Optional.empty();
+    }
+
+    public Map<String, String> findPlaceholders(Collection<String> hashes) {
+        if (hashes.isEmpty()) {
+            return Map.of();
+        }
+        return mediaObjectRepository.findAllById(hashes).stream()
+                .filter(m -> m.getPlaceholder() != null)
+                .collect(Collectors.toMap(MediaObject::getHash, MediaObject::getPlaceholder));
+    }
+
+    private void generate(StoredMedia media) {
+        // content addressed: a forwarded image already has its previews
+        if (findPreview(media.getHash(), MediaVariant.SMALL).isPresent()) {
+            return;
+        }
+        try {
+            final BufferedImage image = read(Paths.get(media.getFilePath()), MediaVariant.MEDIUM.getMaxDimension());
+            if (image == null) {
+                log.debug("No image reader for media {}, skipping previews", media.getHash());
+                return;
+            }
+            for (MediaVariant variant : MediaVariant.values()) {
+                if (variant != MediaVariant.ORIGINAL) {
+                    write(scale(image, variant.getMaxDimension()), fileService.previewPath(media.getHash(), variant));
+                }
+            }
+            final String placeholder = PLACEHOLDER_PREFIX
+                    + Base64.getEncoder().encodeToString(encode(scale(image, PLACEHOLDER_DIMENSION)));
+            transactionTemplate.executeWithoutResult(status ->
+                    mediaObjectRepository.updatePlaceholder(media.getHash(), placeholder));
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            log.warn("Could not generate previews of media {}", media.getHash(), e);
+        }
+    }
+
+    // subsamples while decoding so large photos are never fully decoded into memory
+    private static BufferedImage read(Path file, int targetDimension) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            final Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            final ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                final int longestEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                final int step = Math.max(1, longestEdge / (targetDimension * 2));
+                final ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage image, int maxDimension) {
+        final double factor = Math.min(1.0, (double) maxDimension / Math.max(image.getWidth(), image.getHeight()));
+        final int width = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        final int height = Math.max(1, (int) Math.round(image.getHeight() * factor));
+        final BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static byte[] encode(BufferedImage image) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static void write(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        final Path tempFile = Files.createTempFile(target.getParent(), "preview-", ".part");
+        try {
+            Files.write(tempFile, encode(image));
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
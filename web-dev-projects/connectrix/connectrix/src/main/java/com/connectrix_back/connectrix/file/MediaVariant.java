@@ -0,0 +1,16 @@
+package com.connectrix_back.connectrix.file;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum MediaVariant {
+
+    ORIGINAL(0),
+    SMALL(160),
+    MEDIUM(480);
+
+    // longest edge of the preview in pixels
+    private final int maxDimension;
+}
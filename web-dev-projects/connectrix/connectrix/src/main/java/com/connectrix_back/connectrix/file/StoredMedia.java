@@ -0,0 +1,19 @@
+package com.connectrix_back.connectrix.file;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StoredMedia {
+
+    private String hash;
+    private String filePath;
+    private long size;
+}
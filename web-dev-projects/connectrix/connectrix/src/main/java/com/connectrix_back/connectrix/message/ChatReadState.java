@@ -0,0 +1,30 @@
+package com.connectrix_back.connectrix.message;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class ChatReadState {
+
+    private final Map<String, Long> watermarks;
+
+    private ChatReadState(Map<String, Long> watermarks) {
+        this.watermarks = watermarks;
+    }
+
+    public static ChatReadState of(List<ReadWatermark> watermarks) {
+        return new ChatReadState(watermarks.stream()
+                .collect(Collectors.toMap(ReadWatermark::getUserId, ReadWatermark::getLastReadMessageId)));
+    }
+
+    public MessageState stateOf(Message message) {
+        if (message.getState() == MessageState.SEEN) {
+            return MessageState.SEEN;
+        }
+        final Long watermark = watermarks.get(message.getReceiverId());
+        if (watermark != null && message.getId() <= watermark) {
+            return MessageState.SEEN;
+        }
+        return MessageState.SENT;
+    }
+}
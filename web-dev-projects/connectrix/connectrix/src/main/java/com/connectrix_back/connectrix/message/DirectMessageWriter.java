@@ -0,0 +1,48 @@
+package com.connectrix_back.connectrix.message;
+
+import com.connectrix_back.connectrix.common.VersionStampService;
+import com.connectrix_back.connectrix.sync.SyncService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "application.messages.ingest.mode", havingValue = "direct", matchIfMissing = true)
+public class DirectMessageWriter implements MessageWriter {
+
+    private final MessageRepository messageRepository;
+    private final VersionStampService versionStampService;
+    private final SyncService syncService;
+    private final MessageDeduplicator messageDeduplicator;
+    private final RecentMessageBuffer recentMessageBuffer;
+
+    @Override
+    @Transactional
+    public void write(List<Message> messages) {
+        final List<Message> inserted = messageDeduplicator.claim(messages);
+        messageRepository.saveAll(inserted);
+        final Map<String, Long> chatVersions = versionStampService.bump(
+                inserted.stream().map(m -> m.getChat().getId()).collect(Collectors.toSet()),
+                inserted.stream().flatMap(m -> Stream.of(m.getSenderId(), m.getReceiverId())).collect(Collectors.toSet()));
+        syncService.recordMessages(inserted);
+        recentMessageBuffer.append(inserted, chatVersions);
+    }
+
+    @Override
+    public Optional<Message> findPending(Long messageId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Message> findPendingByChatId(String chatId) {
+        return List.of();
+    }
+}
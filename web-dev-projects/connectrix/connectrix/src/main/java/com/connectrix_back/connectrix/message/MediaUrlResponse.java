@@ -0,0 +1,20 @@
+package com.connectrix_back.connectrix.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MediaUrlResponse {
+
+    private String url;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,97 @@
+package com.connectrix_back.connectrix.message;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+
+/**
+ * Signs short-lived media links for players, which range-request the media themselves and
+ * cannot send the bearer token. A token names the user it was issued to and is valid for one
+ * message until it expires.
+ */
+@Component
+@Slf4j
+public class MediaUrlSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String SEPARATOR = ".";
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+
+    public MediaUrlSigner(@Value("${application.messages.media-url.secret:}") String secret,
+                          @Value("${application.messages.media-url.ttl}") Duration ttl) {
+        this.key = new SecretKeySpec(secretBytes(secret), ALGORITHM);
+        this.ttl = ttl;
+    }
+
+    public MediaUrlResponse sign(Long messageId, String userId) {
+        final Instant expiresAt = Instant.now().plus(ttl);
+        final String payload = encode(userId) + SEPARATOR + expiresAt.getEpochSecond();
+        final String token = payload + SEPARATOR + signature(messageId, payload);
+        return MediaUrlResponse.builder()
+                .url(String.format(MessageConstants.MEDIA_URL, messageId) + "?token=" + token)
+                .expiresAt(LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()))
+                .build();
+    }
+
+    // the user the token was issued to, if it is valid for the message
+    public String verify(String token, Long messageId) {
+        final int signatureIndex = token.lastIndexOf(SEPARATOR);
+        final int expiryIndex = signatureIndex > 0 ? token.lastIndexOf(SEPARATOR, signatureIndex - 1) : -1;
+        if (expiryIndex <= 0) {
+            throw new AccessDeniedException("Invalid media token");
+        }
+        final String payload = token.substring(0, signatureIndex);
+        final byte[] expected = signature(messageId, payload).getBytes(StandardCharsets.US_ASCII);
+        final byte[] actual = token.substring(signatureIndex + 1).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new AccessDeniedException("Invalid media token");
+        }
+        // only a token signed here gets this far, so its parts parse
+        if (Instant.now().getEpochSecond() > Long.parseLong(token.substring(expiryIndex + 1, signatureIndex))) {
+            throw new AccessDeniedException("Media token expired");
+        }
+        return new String(Base64.getUrlDecoder().decode(token.substring(0, expiryIndex)), StandardCharsets.UTF_8);
+    }
+
+    private String signature(Long messageId, String payload) {
+        try {
+            final Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            final byte[] signature = mac.doFinal((messageId + SEPARATOR + payload).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign media url", e);
+        }
+    }
+
+    private static String encode(String userId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(userId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // without a shared secret a link only works on the node that signed it
+    private static byte[] secretBytes(String secret) {
+        if (StringUtils.isNotBlank(secret)) {
+            return secret.getBytes(StandardCharsets.UTF_8);
+        }
+        log.warn("No media url secret configured, signing media links with a key of this node");
+        final byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+}
@@ -6,18 +6,22 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.NamedQuery;
-import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
 
 @Getter
 @Setter
@@ -28,14 +32,28 @@ import lombok.Setter;
 @NamedQuery(name = MessageConstants.FIND_MESSAGES_BY_CHAT_ID,
         query = "SELECT m FROM Message m WHERE m.chat.id = :chatId ORDER BY m.createdDate"
 )
-@NamedQuery(name = MessageConstants.SET_MESSAGES_TO_SEEN_BY_CHAT,
-        query = "UPDATE Message SET state = :newState WHERE chat.id = :chatId"
+@NamedQuery(name = MessageConstants.FIND_LATEST_MESSAGE_ID_BY_CHAT_ID,
+        query = "SELECT MAX(m.id) FROM Message m WHERE m.chat.id = :chatId"
+)
+@NamedQuery(name = MessageConstants.FIND_EXISTING_MESSAGE_IDS,
+        query = "SELECT m.id FROM Message m WHERE m.id IN :ids"
+)
+@NamedQuery(name = MessageConstants.FIND_LATEST_MESSAGES_BY_CHAT_ID,
+        query = "SELECT m FROM Message m WHERE m.chat.id = :chatId ORDER BY m.createdDate DESC, m.id DESC"
+)
+@NamedQuery(name = MessageConstants.FIND_EARLIEST_MESSAGES_BY_CHAT_ID,
+        query = "SELECT m FROM Message m WHERE m.chat.id = :chatId ORDER BY m.createdDate, m.id"
+)
+@NamedQuery(name = MessageConstants.FIND_MESSAGES_BEFORE_CURSOR,
+        query = "SELECT m FROM Message m WHERE m.chat.id = :chatId AND (m.createdDate, m.id) < (:createdDate, :id) ORDER BY m.createdDate DESC, m.id DESC"
 )
-public class Message extends BaseAuditingEntity {
+@NamedQuery(name = MessageConstants.FIND_MESSAGES_AFTER_CURSOR,
+        query = "SELECT m FROM Message m WHERE m.chat.id = :chatId AND (m.createdDate, m.id) > (:createdDate, :id) ORDER BY m.createdDate, m.id"
+)
+public class Message extends BaseAuditingEntity implements Persistable<Long> {
 
+    // assigned by MessageIdAllocator when the message is accepted, before it reaches the database
     @Id
-    @SequenceGenerator(name = "msg_seq", sequenceName = "msg_seq", allocationSize = 1)
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "msg_seq")
     private Long id;
     @Column(columnDefinition = "TEXT")
     private String content;
@@ -51,5 +69,34 @@ public class Message extends BaseAuditingEntity {
     @Column(name = "receiver_id", nullable = false)
     private String receiverId;
     private String mediaFilePath;
+    private String mediaContentType;
+    private Long mediaSize;
+    private String mediaHash;
+
+    @Transient
+    private LocalDateTime acceptedDate;
+    // kept in client_message_ids by MessageDeduplicator, not on the message row
+    @Transient
+    private String clientMessageId;
+    @Transient
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    // the auditing listener stamps the insert time, which lags behind acceptance under write-behind
+    @PrePersist
+    private void applyAcceptedDate() {
+        if (acceptedDate != null) {
+            setCreatedDate(acceptedDate);
+        }
+    }
 
+    @PostLoad
+    @PostPersist
+    private void markPersisted() {
+        persisted = true;
+    }
 }
\ No newline at end of file
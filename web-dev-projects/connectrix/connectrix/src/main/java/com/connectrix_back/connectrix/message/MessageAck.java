@@ -0,0 +1,22 @@
+package com.connectrix_back.connectrix.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MessageAck {
+
+    private String correlationId;
+    private Long messageId;
+    private String chatId;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,365 @@
+package com.connectrix_back.connectrix.message;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Read-only monthly segments of messages moved out of the database. A segment file is a series
+ * of gzip members, one per chat, each holding the chat's messages of the month as JSON lines in
+ * cursor order; {@code message_archive_chats} records where each member starts, so reading a
+ * chat's month decompresses only that member.
+ */
+@Component
+@Slf4j
+public class MessageArchive {
+
+    private static final String SEGMENT_PREFIX = "messages-";
+    private static final String SEGMENT_SUFFIX = ".ndjson.gz";
+    private static final byte[] NEWLINE = {'\n'};
+    private static final Comparator<MessageArchiveRecord> CURSOR_ORDER =
+            Comparator.comparing(MessageArchiveRecord::getCreatedDate).thenComparing(MessageArchiveRecord::getId);
+
+    private static final String FIND_CHAT_MEMBERS = """
+            SELECT c.month, c.byte_offset, c.byte_length, s.file_path FROM message_archive_chats c
+            JOIN message_archive_segments s ON s.month = c.month
+            WHERE c.chat_id = ? ORDER BY c.month, c.byte_offset""";
+    private static final String FIND_MEMBERS_BY_MESSAGE_ID = """
+            SELECT c.month, c.byte_offset, c.byte_length, s.file_path FROM message_archive_chats c
+            JOIN message_archive_segments s ON s.month = c.month
+            JOIN chat ch ON ch.id = c.chat_id
+            WHERE ? BETWEEN c.min_id AND c.max_id AND (ch.sender_id = ? OR ch.recipient_id = ?)""";
+    private static final String INSERT_SEGMENT = """
+            INSERT INTO message_archive_segments (month, file_path, message_count) VALUES (?, ?, ?)""";
+    private static final String INSERT_CHAT_MEMBER = """
+            INSERT INTO message_archive_chats (chat_id, month, byte_offset, byte_length, message_count, min_id, max_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    // members never change once written, walking a cursor back reads the same member page after page
+    private final Cache<Member, List<MessageArchiveRecord>> members;
+
+    public MessageArchive(JdbcTemplate jdbcTemplate,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry,
+                          @Value("${application.messages.archive.path}") Path directory,
+                          @Value("${application.messages.archive.cache-size}") long cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.members = Caffeine.newBuilder()
+                .maximumWeight(cacheSize)
+                .weigher((Member member, List<MessageArchiveRecord> records) -> records.size())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, members, "message-archive");
+    }
+
+    public SegmentWriter openSegment(LocalDate month) throws IOException {
+        return new SegmentWriter(month);
+    }
+
+    public List<MessageArchiveRecord> findChatMessages(String chatId) {
+        final List<MessageArchiveRecord> records = new ArrayList<>();
+        for (List<Member> month : findMonths(chatId)) {
+            records.addAll(readMonth(month));
+        }
+        return records;
+    }
+
+    public List<MessageArchiveRecord> findMessagesBefore(String chatId, MessageCursor position, int limit) {
+        final List<MessageArchiveRecord> records = new ArrayList<>();
+        final List<List<Member>> months = findMonths(chatId);
+        for (int i = months.size() - 1; i >= 0 && records.size() < limit; i--) {
+            final List<Member> month = months.get(i);
+            if (position != null && !month.get(0).start().isBefore(position.getCreatedDate())) {
+                continue;
+            }
+            final List<MessageArchiveRecord> monthRecords = readMonth(month);
+            for (int j = monthRecords.size() - 1; j >= 0 && records.size() < limit; j--) {
+                final MessageArchiveRecord record = monthRecords.get(j);
+                if (position == null || compare(record, position) < 0) {
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+
+    public List<MessageArchiveRecord> findMessagesAfter(String chatId, MessageCursor position, int limit) {
+        final List<MessageArchiveRecord> records = new ArrayList<>();
+        for (List<Member> month : findMonths(chatId)) {
+            if (records.size() >= limit) {
+                break;
+            }
+            if (position != null && !month.get(0).end().isAfter(position.getCreatedDate())) {
+                continue;
+            }
+            for (MessageArchiveRecord record : readMonth(month)) {
+                if (records.size() >= limit) {
+                    break;
+                }
+                if (position == null || compare(record, position) > 0) {
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+
+    public Optional<MessageArchiveRecord> findMessage(Long messageId, String userId) {
+        final List<Member> candidates = jdbcTemplate.query(FIND_MEMBERS_BY_MESSAGE_ID, MessageArchive::toMember,
+                messageId, userId, userId);
+        return candidates.stream()
+                .flatMap(member -> read(member).stream())
+                .filter(record -> messageId.equals(record.getId()))
+                .findFirst();
+    }
+
+    // bypasses the member cache, an export reads every member once and would only evict hot pages
+    public void forEachChatMessage(String chatId, Consumer<MessageArchiveRecord> action) {
+        for (List<Member> month : findMonths(chatId)) {
+            if (month.size() == 1) {
+                readMember(month.get(0), action);
+                continue;
+            }
+            final List<MessageArchiveRecord> records = new ArrayList<>();
+            month.forEach(member -> readMember(member, records::add));
+            records.sort(CURSOR_ORDER);
+            records.forEach(action);
+        }
+    }
+
+    // a chat merged from duplicates keeps a member of each of them in the months both were archived
+    private List<List<Member>> findMonths(String chatId) {
+        final List<List<Member>> months = new ArrayList<>();
+        for (Member member : jdbcTemplate.query(FIND_CHAT_MEMBERS, MessageArchive::toMember, chatId)) {
+            if (months.isEmpty() || !months.get(months.size() - 1).get(0).month().equals(member.month())) {
+                months.add(new ArrayList<>());
+            }
+            months.get(months.size() - 1).add(member);
+        }
+        return months;
+    }
+
+    private List<MessageArchiveRecord> readMonth(List<Member> month) {
+        if (month.size() == 1) {
+            return read(month.get(0));
+        }
+        final List<MessageArchiveRecord> records = new ArrayList<>();
+        month.forEach(member -> records.addAll(read(member)));
+        records.sort(CURSOR_ORDER);
+        return records;
+    }
+
+    private List<MessageArchiveRecord> read(Member member) {
+        return members.get(member, this::decode);
+    }
+
+    private List<MessageArchiveRecord> decode(Member member) {
+        final List<MessageArchiveRecord> records = new ArrayList<>();
+        readMember(member, records::add);
+        return records;
+    }
+
+    private void readMember(Member member, Consumer<MessageArchiveRecord> action) {
+        try (FileChannel channel = FileChannel.open(Path.of(member.filePath()), StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+                     new MemberInputStream(channel, member)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    action.accept(objectMapper.readValue(line, MessageArchiveRecord.class));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archived messages from " + member.filePath(), e);
+        }
+    }
+
+    private static Member toMember(ResultSet rs, int rowNum) throws SQLException {
+        return new Member(rs.getDate("month").toLocalDate(), rs.getLong("byte_offset"),
+                rs.getInt("byte_length"), rs.getString("file_path"));
+    }
+
+    private static int compare(MessageArchiveRecord record, MessageCursor position) {
+        final int byDate = record.getCreatedDate().compareTo(position.getCreatedDate());
+        return byDate != 0 ? byDate : Long.compare(record.getId(), position.getId());
+    }
+
+    private record Member(LocalDate month, long offset, int length, String filePath) {
+
+        LocalDateTime start() {
+            return month.atStartOfDay();
+        }
+
+        LocalDateTime end() {
+            return month.plusMonths(1).atStartOfDay();
+        }
+    }
+
+    // one gzip member of a segment, GZIPInputStream would otherwise carry on into the next chat's member
+    private static final class MemberInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final String filePath;
+        private long position;
+        private long remaining;
+
+        private MemberInputStream(FileChannel channel, Member member) {
+            this.channel = channel;
+            this.filePath = member.filePath();
+            this.position = member.offset();
+            this.remaining = member.length();
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            final int read = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, remaining)), position);
+            if (read == -1) {
+                throw new IOException("Archive segment " + filePath + " is truncated");
+            }
+            position += read;
+            remaining -= read;
+            return read;
+        }
+    }
+
+    /**
+     * Writes one month of messages, which must arrive ordered by chat, created date and id.
+     * The segment only becomes visible on {@link #commit()}, inside the archiving transaction.
+     */
+    public final class SegmentWriter implements Closeable {
+
+        private final LocalDate month;
+        private final Path target;
+        private final Path tempFile;
+        private final FileChannel channel;
+        private final BufferedOutputStream out;
+        private final List<Object[]> chatMembers = new ArrayList<>();
+        private GZIPOutputStream member;
+        private String chatId;
+        private long memberOffset;
+        private int memberCount;
+        private long minId;
+        private long maxId;
+        private long messageCount;
+
+        private SegmentWriter(LocalDate month) throws IOException {
+            this.month = month;
+            Files.createDirectories(directory);
+            this.target = directory.resolve(SEGMENT_PREFIX + month.getYear() + "-"
+                    + String.format("%02d", month.getMonthValue()) + SEGMENT_SUFFIX);
+            this.tempFile = Files.createTempFile(directory, SEGMENT_PREFIX, ".part");
+            this.channel = FileChannel.open(tempFile, StandardOpenOption.WRITE);
+            this.out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+        }
+
+        public void append(MessageArchiveRecord record) throws IOException {
+            if (!Objects.equals(record.getChatId(), chatId)) {
+                finishMember();
+                out.flush();
+                memberOffset = channel.position();
+                member = new GZIPOutputStream(out, 64 * 1024);
+                chatId = record.getChatId();
+                memberCount = 0;
+                minId = Long.MAX_VALUE;
+                maxId = Long.MIN_VALUE;
+            }
+            member.write(objectMapper.writeValueAsBytes(record));
+            member.write(NEWLINE);
+            memberCount++;
+            messageCount++;
+            minId = Math.min(minId, record.getId());
+            maxId = Math.max(maxId, record.getId());
+        }
+
+        public long getMessageCount() {
+            return messageCount;
+        }
+
+        public void commit() throws IOException {
+            finishMember();
+            out.flush();
+            channel.force(true);
+            channel.close();
+            try {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (!target.toFile().setReadOnly()) {
+                log.warn("Could not mark archive segment {} read-only", target);
+            }
+            jdbcTemplate.update(INSERT_SEGMENT, Date.valueOf(month), target.toString(), messageCount);
+            jdbcTemplate.batchUpdate(INSERT_CHAT_MEMBER, chatMembers);
+            log.info("Archived {} messages of {} chats to {}", messageCount, chatMembers.size(), target);
+        }
+
+        private void finishMember() throws IOException {
+            if (member == null) {
+                return;
+            }
+            member.finish();
+            out.flush();
+            final long length = channel.position() - memberOffset;
+            chatMembers.add(new Object[]{chatId, Date.valueOf(month), memberOffset, (int) length, memberCount, minId, maxId});
+            member = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel.isOpen()) {
+                channel.close();
+            }
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.connectrix_back.connectrix.message;
+
+import com.connectrix_back.connectrix.chat.Chat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageArchiveRecord {
+
+    private Long id;
+    private String chatId;
+    private String content;
+    private MessageState state;
+    private MessageType type;
+    private String senderId;
+    private String receiverId;
+    private String mediaFilePath;
+    private String mediaContentType;
+    private Long mediaSize;
+    private String mediaHash;
+    private LocalDateTime createdDate;
+    private LocalDateTime lastModifiedDate;
+
+    public static MessageArchiveRecord of(ResultSet rs) throws SQLException {
+        final Timestamp lastModified = rs.getTimestamp("last_modified_date");
+        final String state = rs.getString("state");
+        final String type = rs.getString("type");
+        return MessageArchiveRecord.builder()
+                .id(rs.getLong("id"))
+                .chatId(rs.getString("chat_id"))
+                .content(rs.getString("content"))
+                .state(state == null ? null : MessageState.valueOf(state))
+                .type(type == null ? null : MessageType.valueOf(type))
+                .senderId(rs.getString("sender_id"))
+                .receiverId(rs.getString("receiver_id"))
+                .mediaFilePath(rs.getString("media_file_path"))
+                .mediaContentType(rs.getString("media_content_type"))
+                .mediaSize(rs.getObject("media_size", Long.class))
+                .mediaHash(rs.getString("media_hash"))
+                .createdDate(rs.getTimestamp("created_date").toLocalDateTime())
+                .lastModifiedDate(lastModified == null ? null : lastModified.toLocalDateTime())
+                .build();
+    }
+
+    public Message toMessage(Chat chat) {
+        Message message = new Message();
+        message.setId(id);
+        message.setChat(chat);
+        message.setContent(content);
+        message.setState(state);
+        message.setType(type);
+        message.setSenderId(senderId);
+        message.setReceiverId(receiverId);
+        message.setMediaFilePath(mediaFilePath);
+        message.setMediaContentType(mediaContentType);
+        message.setMediaSize(mediaSize);
+        message.setMediaHash(mediaHash);
+        message.setCreatedDate(createdDate);
+        message.setLastModifiedDate(lastModifiedDate);
+        message.setPersisted(true);
+        return message;
+    }
+}
@@ -4,7 +4,33 @@ public class MessageConstants {
 
 
     public static final String FIND_MESSAGES_BY_CHAT_ID = "Message.findMessagesByChatId";
-    public static final String SET_MESSAGES_TO_SEEN_BY_CHAT = "Message.setMessagesToSeenByChat";
+    public static final String FIND_LATEST_MESSAGE_ID_BY_CHAT_ID = "Message.findLatestMessageIdByChatId";
+    public static final String FIND_READ_WATERMARKS_BY_CHAT_ID = "ReadWatermark.findReadWatermarksByChatId";
+    public static final String FIND_LATEST_MESSAGES_BY_CHAT_ID = "Message.findLatestMessagesByChatId";
+    public static final String FIND_EARLIEST_MESSAGES_BY_CHAT_ID = "Message.findEarliestMessagesByChatId";
+    public static final String FIND_MESSAGES_BEFORE_CURSOR = "Message.findMessagesBeforeCursor";
+    public static final String FIND_MESSAGES_AFTER_CURSOR = "Message.findMessagesAfterCursor";
+    public static final String FIND_EXISTING_MESSAGE_IDS = "Message.findExistingMessageIds";
+
+    public static final String MEDIA_URL = "/api/v1/messages/%d/media";
+    public static final String MEDIA_PREVIEW_URL = "/api/v1/messages/%d/media?variant=SMALL";
+    public static final long MAX_MEDIA_CHUNK_SIZE = 1024 * 1024;
+
+    public static final int MAX_SEND_BATCH_SIZE = 100;
+    public static final int MAX_CLIENT_MESSAGE_ID_LENGTH = 64;
+
+    public static final String ACK_DESTINATION = "/queue/ack";
+    public static final String ERROR_DESTINATION = "/queue/errors";
+    public static final String CORRELATION_ID_HEADER = "correlation-id";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    public static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    public static final int MAX_SEARCH_PAGE_SIZE = 100;
+    public static final int MAX_SEARCH_QUERY_LENGTH = 256;
+
+    public static final int EXPORT_FETCH_SIZE = 500;
 
     private MessageConstants() {}
 }
\ No newline at end of file
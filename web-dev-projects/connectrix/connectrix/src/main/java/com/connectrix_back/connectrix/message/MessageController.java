@@ -1,10 +1,19 @@
 package com.connectrix_back.connectrix.message;
 
+import com.connectrix_back.connectrix.common.VersionStampService;
+import com.connectrix_back.connectrix.file.MediaVariant;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -12,11 +21,14 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -27,6 +39,9 @@ import java.util.List;
 public class MessageController {
 
     private final MessageService messageService;
+    private final VersionStampService versionStampService;
+    private final MessageExportService messageExportService;
+    private final MediaUrlSigner mediaUrlSigner;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -34,6 +49,12 @@ public class MessageController {
         messageService.saveMessage(message);
     }
 
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void saveMessages(@RequestBody List<MessageRequest> messages, Authentication authentication) {
+        messageService.saveMessages(messages, authentication);
+    }
+
     @PostMapping(value = "/upload-media", consumes = "multipart/form-data")
     @ResponseStatus(HttpStatus.CREATED)
     public void uploadMedia(
@@ -47,15 +68,130 @@ public class MessageController {
 
     @PatchMapping
     @ResponseStatus(HttpStatus.ACCEPTED)
-    public void setMessageToSeen(@RequestParam("chat-id") String chatId, Authentication authentication) {
-        messageService.setMessagesToSeen(chatId, authentication);
+    public void setMessageToSeen(
+            @RequestParam("chat-id") String chatId,
+            @RequestParam(name = "message-id", required = false) Long messageId,
+            Authentication authentication
+    ) {
+        messageService.setMessagesToSeen(chatId, messageId, authentication);
     }
 
     @GetMapping("/chat/{chat-id}")
     public ResponseEntity<List<MessageResponse>> getAllMessages(
-            @PathVariable("chat-id") String chatId
+            @PathVariable("chat-id") String chatId,
+            WebRequest request,
+            Authentication authentication
+    ) {
+        messageService.checkParticipant(chatId, authentication);
+        final String eTag = versionStampService.chatETag(chatId);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(eTag)
+                .body(messageService.findChatMessages(chatId));
+    }
+
+    @GetMapping("/chat/{chat-id}/page")
+    public ResponseEntity<MessagePageResponse> getMessagesPage(
+            @PathVariable("chat-id") String chatId,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "direction", defaultValue = "BEFORE") MessagePageDirection direction,
+            @RequestParam(name = "size", defaultValue = "" + MessageConstants.DEFAULT_PAGE_SIZE) int size,
+            WebRequest request,
+            Authentication authentication
+    ) {
+        // before the version lookup, so the ETag does not leak whether a foreign chat changed
+        messageService.checkParticipant(chatId, authentication);
+        final long chatVersion = versionStampService.chatVersion(chatId);
+        final String eTag = versionStampService.chatETag(chatVersion);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(eTag)
+                .body(messageService.findChatMessagesPage(chatId, cursor, direction, size, chatVersion));
+    }
+
+    @GetMapping(value = "/chat/{chat-id}/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportMessages(
+            @PathVariable("chat-id") String chatId,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(messageExportService.exportChatMessages(chatId, authentication));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<MessageSearchResponse> searchMessages(
+            @RequestParam("q") String query,
+            @RequestParam(name = "chat-id", required = false) String chatId,
+            @RequestParam(name = "page", defaultValue = "0") int page,
+            @RequestParam(name = "size", defaultValue = "" + MessageConstants.DEFAULT_SEARCH_PAGE_SIZE) int size,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(messageService.searchMessages(query, chatId, page, size, authentication));
+    }
+
+    @GetMapping("/{message-id}/media-url")
+    public ResponseEntity<MediaUrlResponse> getMediaUrl(
+            @PathVariable("message-id") Long messageId,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(messageService.signMediaUrl(messageId, authentication));
+    }
+
+    @GetMapping("/{message-id}/media")
+    public ResponseEntity<Resource> getMedia(
+            @PathVariable("message-id") Long messageId,
+            @RequestParam(name = "variant", defaultValue = "ORIGINAL") MediaVariant variant,
+            @RequestParam(name = "token", required = false) String token,
+            Authentication authentication
+    ) {
+        final MessageMedia media = messageService.findMessageMedia(messageId, variant, mediaUser(messageId, token, authentication));
+        return ResponseEntity.ok()
+                .contentType(media.getContentType())
+                .contentLength(media.getSize())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(media.getResource());
+    }
+
+    // a handler of its own, the region converter only writes bodies declared as ResourceRegion
+    @GetMapping(value = "/{message-id}/media", headers = HttpHeaders.RANGE)
+    public ResponseEntity<ResourceRegion> getMediaRange(
+            @PathVariable("message-id") Long messageId,
+            @RequestParam(name = "variant", defaultValue = "ORIGINAL") MediaVariant variant,
+            @RequestParam(name = "token", required = false) String token,
+            @RequestHeader HttpHeaders headers,
+            Authentication authentication
     ) {
+        final MessageMedia media = messageService.findMessageMedia(messageId, variant, mediaUser(messageId, token, authentication));
+        final HttpRange range = headers.getRange().get(0);
+        final long start = range.getRangeStart(media.getSize());
+        if (start >= media.getSize()) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + media.getSize())
+                    .build();
+        }
+        final long end = Math.min(range.getRangeEnd(media.getSize()), start + MessageConstants.MAX_MEDIA_CHUNK_SIZE - 1);
+        // the converter writes Content-Range and Content-Length and copies only the range
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .contentType(media.getContentType())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(new ResourceRegion(media.getResource(), start, end - start + 1));
+    }
 
-        return ResponseEntity.ok(messageService.findChatMessages(chatId));
+    // players request the media with a signed link, everything else with the bearer token
+    private String mediaUser(Long messageId, String token, Authentication authentication) {
+        if (token != null) {
+            return mediaUrlSigner.verify(token, messageId);
+        }
+        if (authentication == null) {
+            throw new AccessDeniedException("Media requires a token");
+        }
+        return authentication.getName();
     }
 }
@@ -0,0 +1,48 @@
+package com.connectrix_back.connectrix.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+@Getter
+@AllArgsConstructor
+public class MessageCursor {
+
+    private static final String SEPARATOR = "_";
+
+    private final LocalDateTime createdDate;
+    private final Long id;
+
+    public static MessageCursor of(Message message) {
+        return new MessageCursor(message.getCreatedDate(), message.getId());
+    }
+
+    public String encode() {
+        final String raw = createdDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MessageCursor decode(String cursor) {
+        if (StringUtils.isBlank(cursor)) {
+            return null;
+        }
+        try {
+            final String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final int separatorIndex = raw.lastIndexOf(SEPARATOR);
+            if (separatorIndex == -1) {
+                throw new IllegalArgumentException("Invalid message cursor " + cursor);
+            }
+            return new MessageCursor(
+                    LocalDateTime.parse(raw.substring(0, separatorIndex)),
+                    Long.valueOf(raw.substring(separatorIndex + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid message cursor " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.connectrix_back.connectrix.message;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns retried sends that carry a client message id into acks of the original message. Ids
+ * accepted by this node within the window are answered from memory without touching the
+ * database; the writer claims every id in the {@code client_message_ids} ledger in its batch,
+ * which drops a retry that reached another node, or this one after a restart, in favour of the
+ * original message.
+ */
+@Component
+@Slf4j
+public class MessageDeduplicator {
+
+    // returns the messages that hold their id: claimed now, or already when they were accepted
+    private static final String CLAIM = """
+            WITH input (sender_id, client_message_id, message_id, chat_id, accepted_at) AS (
+                SELECT * FROM unnest(CAST(? AS TEXT[]), CAST(? AS TEXT[]), CAST(? AS BIGINT[]), CAST(? AS TEXT[]), CAST(? AS TIMESTAMP[]))
+            ), claimed AS (
+                INSERT INTO client_message_ids (sender_id, client_message_id, message_id, chat_id, accepted_at)
+                SELECT * FROM input
+                ON CONFLICT (sender_id, client_message_id) DO NOTHING
+                RETURNING message_id
+            )
+            SELECT message_id FROM claimed
+            UNION ALL
+            SELECT c.message_id FROM client_message_ids c
+            JOIN input i ON i.sender_id = c.sender_id AND i.client_message_id = c.client_message_id AND i.message_id = c.message_id""";
+    private static final String FIND_ORIGINAL = """
+            SELECT message_id, chat_id, accepted_at FROM client_message_ids WHERE sender_id = ? AND client_message_id = ?""";
+    private static final String RELEASE = """
+            DELETE FROM client_message_ids WHERE sender_id = ? AND client_message_id = ? AND message_id = ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration window;
+    private final Cache<ClientMessageKey, MessageAck> accepted;
+    private final Counter duplicates;
+
+    public MessageDeduplicator(JdbcTemplate jdbcTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${application.messages.dedup.window}") Duration window,
+                               @Value("${application.messages.dedup.max-size}") long maxSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.window = window;
+        this.accepted = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        this.duplicates = meterRegistry.counter("connectrix.messages.duplicates");
+        CaffeineCacheMetrics.monitor(meterRegistry, accepted, "client-message-ids");
+    }
+
+    /**
+     * Remembers the message under its client id, or returns the ack of the message accepted
+     * earlier under the same id, in which case the message must not be written.
+     */
+    public MessageAck accept(Message message) {
+        if (message.getClientMessageId() == null) {
+            return null;
+        }
+        if (message.getClientMessageId().length() > MessageConstants.MAX_CLIENT_MESSAGE_ID_LENGTH) {
+            throw new IllegalArgumentException("Client message id is too long");
+        }
+        final ClientMessageKey key = ClientMessageKey.of(message);
+        final MessageAck original = accepted.asMap().putIfAbsent(key, toAck(message));
+        if (original != null) {
+            duplicates.increment();
+            return copy(original);
+        }
+        return null;
+    }
+
+    // a write that failed must not turn its retry into an ack of a message that does not exist
+    public void forget(Message message) {
+        if (message.getClientMessageId() != null) {
+            accepted.asMap().computeIfPresent(ClientMessageKey.of(message),
+                    (key, ack) -> ack.getMessageId().equals(message.getId()) ? null : ack);
+            jdbcTemplate.update(RELEASE, message.getSenderId(), message.getClientMessageId(), message.getId());
+        }
+    }
+
+    // the ack of the original message once claim() has found the id taken by another node
+    public MessageAck ackOf(Message message) {
+        if (message.getClientMessageId() == null) {
+            return toAck(message);
+        }
+        final MessageAck ack = accepted.getIfPresent(ClientMessageKey.of(message));
+        return ack != null ? copy(ack) : toAck(message);
+    }
+
+    public boolean isDuplicate(Message message) {
+        return !message.getId().equals(ackOf(message).getMessageId());
+    }
+
+    /**
+     * Claims the client ids of the messages in the current transaction and returns the messages
+     * to insert; messages whose id was claimed before by another message are left out.
+     */
+    public List<Message> claim(List<Message> messages) {
+        final List<Message> identified = messages.stream().filter(m -> m.getClientMessageId() != null).toList();
+        if (identified.isEmpty()) {
+            return messages;
+        }
+        final Set<Long> claimed = new HashSet<>(jdbcTemplate.query(con -> claimStatement(con, identified),
+                (rs, rowNum) -> rs.getLong("message_id")));
+        if (claimed.size() == identified.size()) {
+            return messages;
+        }
+        return messages.stream()
+                .filter(m -> m.getClientMessageId() == null || claimed.contains(m.getId()) || !rememberOriginal(m))
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${application.messages.dedup.purge-interval}")
+    public void purgeClaims() {
+        final int purged = jdbcTemplate.update(
+                "DELETE FROM client_message_ids WHERE accepted_at < now() - make_interval(secs => ?)", window.toSeconds());
+        if (purged > 0) {
+            log.debug("Purged {} client message ids", purged);
+        }
+    }
+
+    private PreparedStatement claimStatement(Connection con, List<Message> messages) throws SQLException {
+        final PreparedStatement statement = con.prepareStatement(CLAIM);
+        statement.setArray(1, con.createArrayOf("text", messages.stream().map(Message::getSenderId).toArray()));
+        statement.setArray(2, con.createArrayOf("text", messages.stream().map(Message::getClientMessageId).toArray()));
+        statement.setArray(3, con.createArrayOf("bigint", messages.stream().map(Message::getId).toArray()));
+        statement.setArray(4, con.createArrayOf("text", messages.stream().map(m -> m.getChat().getId()).toArray()));
+        statement.setArray(5, con.createArrayOf("timestamp", messages.stream()
+                .map(m -> Timestamp.valueOf(m.getAcceptedDate() != null ? m.getAcceptedDate() : LocalDateTime.now()))
+                .toArray()));
+        return statement;
+    }
+
+    private boolean rememberOriginal(Message message) {
+        final List<MessageAck> originals = jdbcTemplate.query(FIND_ORIGINAL, (rs, rowNum) -> MessageAck.builder()
+                .messageId(rs.getLong("message_id"))
+                .chatId(rs.getString("chat_id"))
+                .createdAt(rs.getTimestamp("accepted_at").toLocalDateTime())
+                .build(), message.getSenderId(), message.getClientMessageId());
+        if (originals.isEmpty() || originals.get(0).getMessageId().equals(message.getId())) {
+            return false;
+        }
+        accepted.put(ClientMessageKey.of(message), originals.get(0));
+        duplicates.increment();
+        log.debug("Dropping message {}, client id {} was sent before as message {}",
+                message.getId(), message.getClientMessageId(), originals.get(0).getMessageId());
+        return true;
+    }
+
+    private static MessageAck toAck(Message message) {
+        return MessageAck.builder()
+                .messageId(message.getId())
+                .chatId(message.getChat().getId())
+                .createdAt(message.getAcceptedDate())
+                .build();
+    }
+
+    // acks handed out are completed with a correlation id, the remembered one must stay untouched
+    private static MessageAck copy(MessageAck ack) {
+        return MessageAck.builder()
+                .messageId(ack.getMessageId())
+                .chatId(ack.getChatId())
+                .createdAt(ack.getCreatedAt())
+                .build();
+    }
+
+    private record ClientMessageKey(String senderId, String clientMessageId) {
+
+        static ClientMessageKey of(Message message) {
+            return new ClientMessageKey(message.getSenderId(), message.getClientMessageId());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.connectrix_back.connectrix.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MessageError {
+
+    private String correlationId;
+    private String error;
+}
@@ -0,0 +1,105 @@
+package com.connectrix_back.connectrix.message;
+
+import com.connectrix_back.connectrix.chat.Chat;
+import com.connectrix_back.connectrix.chat.ChatRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Writes a chat's whole history as newline-delimited JSON, archived months first, one message at
+ * a time from a database cursor, so memory use does not grow with the length of the chat.
+ */
+@Service
+public class MessageExportService {
+
+    private final ChatRepository chatRepository;
+    private final MessageRepository messageRepository;
+    private final ReadWatermarkRepository readWatermarkRepository;
+    private final MessageArchive messageArchive;
+    private final MessageWriter messageWriter;
+    private final MessageMapper mapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public MessageExportService(ChatRepository chatRepository,
+                                MessageRepository messageRepository,
+                                ReadWatermarkRepository readWatermarkRepository,
+                                MessageArchive messageArchive,
+                                MessageWriter messageWriter,
+                                MessageMapper mapper,
+                                ObjectMapper objectMapper,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager) {
+        this.chatRepository = chatRepository;
+        this.messageRepository = messageRepository;
+        this.readWatermarkRepository = readWatermarkRepository;
+        this.messageArchive = messageArchive;
+        this.messageWriter = messageWriter;
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Postgres only honours the fetch size inside a transaction, otherwise it sends every row at once
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    // access is checked up front, so a refused export fails with a status instead of a cut-off body
+    public StreamingResponseBody exportChatMessages(String chatId, Authentication authentication) {
+        final Chat chat = chatRepository.findById(chatId)
+                .orElseThrow(() -> new EntityNotFoundException("Chat not found"));
+        final String userId = authentication.getName();
+        if (!userId.equals(chat.getSender().getId()) && !userId.equals(chat.getRecipient().getId())) {
+            throw new AccessDeniedException("Not a participant of this chat");
+        }
+        return out -> transactionTemplate.executeWithoutResult(status -> writeChatMessages(chat, out));
+    }
+
+    private void writeChatMessages(Chat chat, OutputStream out) {
+        // taken before the cursor opens, so a message flushed meanwhile is written once from either side
+        final Map<Long, Message> pending = new LinkedHashMap<>();
+        messageWriter.findPendingByChatId(chat.getId()).forEach(m -> pending.put(m.getId(), m));
+        final ChatReadState readState = ChatReadState.of(readWatermarkRepository.findByChatId(chat.getId()));
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            messageArchive.forEachChatMessage(chat.getId(), r -> write(generator, r.toMessage(chat), readState));
+            try (Stream<Message> messages = messageRepository.streamMessagesByChatId(chat.getId())) {
+                messages.forEach(m -> {
+                    pending.remove(m.getId());
+                    write(generator, m, readState);
+                    // the persistence context would otherwise keep every exported row
+                    entityManager.detach(m);
+                });
+            }
+            pending.values().forEach(m -> write(generator, m, readState));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not export chat " + chat.getId(), e);
+        }
+    }
+
+    // placeholders are left out, an export is not rendered while it loads
+    private void write(JsonGenerator generator, Message message, ChatReadState readState) {
+        try {
+            generator.writeObject(mapper.toMessageResponse(message, readState, Map.of()));
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.connectrix_back.connectrix.message;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out message ids from msg_seq. A single node takes them in blocks of the sequence's
+ * INCREMENT BY; nodes of a cluster take one value per message instead, because blocks held by
+ * several nodes would interleave ids out of acceptance order, and read watermarks and history
+ * cursors rely on ids growing with it.
+ */
+@Component
+public class MessageIdAllocator {
+
+    // the increment is read with every block, so the block size cannot drift from the sequence
+    private static final String NEXT_BLOCK = """
+            SELECT nextval('msg_seq') AS last_id,
+                   (SELECT increment_by FROM pg_sequences
+                     WHERE schemaname = current_schema() AND sequencename = 'msg_seq') AS block_size""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean pooled;
+
+    private long next;
+    private long last = -1;
+
+    public MessageIdAllocator(JdbcTemplate jdbcTemplate,
+                              @Value("${application.cluster.mode:local}") String clusterMode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pooled = !"postgres".equals(clusterMode);
+    }
+
+    public synchronized long nextId() {
+        if (next > last) {
+            jdbcTemplate.query(NEXT_BLOCK, rs -> {
+                last = rs.getLong("last_id");
+                final long blockSize = rs.getLong("block_size");
+                if (blockSize < 1) {
+                    throw new IllegalStateException("msg_seq must count upwards, INCREMENT BY is " + blockSize);
+                }
+                next = pooled ? Math.max(1, last - blockSize + 1) : last;
+            });
+        }
+        return next++;
+    }
+}
@@ -0,0 +1,270 @@
+package com.connectrix_back.connectrix.message;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of accepted messages. Appends are grouped and fsync'ed together by a
+ * single committer thread; a segment is deleted once it is sealed and every record in it
+ * has been released by the database writer.
+ */
+@Slf4j
+public class MessageJournal implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "messages-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final Path directory;
+    private final long groupCommitNanos;
+    private final long maxSegmentBytes;
+    private final Timer commitTimer;
+    private final BlockingQueue<Append> appends = new LinkedBlockingQueue<>();
+    private final Set<Segment> segments = ConcurrentHashMap.newKeySet();
+    private final Thread committer;
+    private volatile boolean running = true;
+    private Segment active;
+
+    public MessageJournal(Path directory,
+                          long firstSequence,
+                          Duration groupCommitInterval,
+                          long maxSegmentBytes,
+                          Timer commitTimer) throws IOException {
+        this.directory = directory;
+        this.groupCommitNanos = groupCommitInterval.toNanos();
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.commitTimer = commitTimer;
+        this.active = openSegment(firstSequence);
+        this.committer = new Thread(this::commitLoop, "message-journal");
+        this.committer.start();
+    }
+
+    public synchronized CompletableFuture<Segment> append(List<byte[]> records) {
+        final Append append = new Append(records, new CompletableFuture<>());
+        if (!running) {
+            append.result().completeExceptionally(new IllegalStateException("Message journal is closed"));
+            return append.result();
+        }
+        appends.add(append);
+        return append.result();
+    }
+
+    public void release(Segment segment, int count) {
+        if (segment.pending.addAndGet(-count) == 0) {
+            deleteIfDrained(segment);
+        }
+    }
+
+    public int pendingAppends() {
+        return appends.size();
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            running = false;
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        active.sealed = true;
+        closeQuietly(active);
+        deleteIfDrained(active);
+    }
+
+    public static List<Path> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(MessageJournal::isSegment)
+                    .sorted(Comparator.comparingLong(MessageJournal::sequenceOf))
+                    .toList();
+        }
+    }
+
+    public static long sequenceOf(Path segment) {
+        final String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    public static void readRecords(Path segment, Consumer<String> consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    consumer.accept(line);
+                }
+            }
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        final String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private void commitLoop() {
+        final List<Append> group = new ArrayList<>();
+        while (running || !appends.isEmpty()) {
+            try {
+                final Append first = appends.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                final long deadline = System.nanoTime() + groupCommitNanos;
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    final Append next = appends.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                appends.drainTo(group);
+                commitTimer.record(() -> commit(group));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<Append> group) {
+        final Segment segment = active;
+        final List<ByteBuffer> buffers = new ArrayList<>();
+        int count = 0;
+        for (Append append : group) {
+            for (byte[] record : append.records()) {
+                buffers.add(ByteBuffer.wrap(record));
+                buffers.add(ByteBuffer.wrap(NEWLINE));
+                count++;
+            }
+        }
+
+        segment.pending.addAndGet(count);
+        long start = -1;
+        try {
+            start = segment.channel.position();
+            final ByteBuffer[] data = buffers.toArray(ByteBuffer[]::new);
+            long remaining = buffers.stream().mapToLong(ByteBuffer::remaining).sum();
+            while (remaining > 0) {
+                remaining -= segment.channel.write(data);
+            }
+            segment.channel.force(false);
+        } catch (IOException e) {
+            segment.pending.addAndGet(-count);
+            rollBack(segment, start);
+            group.forEach(a -> a.result().completeExceptionally(new UncheckedIOException("Could not append to message journal", e)));
+            return;
+        }
+        group.forEach(a -> a.result().complete(segment));
+
+        try {
+            if (segment.channel.size() >= maxSegmentBytes) {
+                active = openSegment(segment.sequence + 1);
+                segment.sealed = true;
+                closeQuietly(segment);
+                deleteIfDrained(segment);
+            }
+        } catch (IOException e) {
+            log.warn("Could not roll message journal segment {}, keeping it open", segment.path, e);
+        }
+    }
+
+    private void rollBack(Segment segment, long position) {
+        if (position < 0) {
+            return;
+        }
+        try {
+            segment.channel.truncate(position);
+            segment.channel.position(position);
+        } catch (IOException e) {
+            log.error("Could not roll back partial append in {}", segment.path, e);
+        }
+    }
+
+    private Segment openSegment(long sequence) throws IOException {
+        Files.createDirectories(directory);
+        final Path path = directory.resolve(SEGMENT_PREFIX + sequence + SEGMENT_SUFFIX);
+        final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        final Segment segment = new Segment(sequence, path, channel);
+        segments.add(segment);
+        return segment;
+    }
+
+    private void deleteIfDrained(Segment segment) {
+        if (!segment.sealed || segment.pending.get() != 0 || !segment.deleted.compareAndSet(false, true)) {
+            return;
+        }
+        closeQuietly(segment);
+        segments.remove(segment);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("Could not delete drained message journal segment {}", segment.path, e);
+        }
+    }
+
+    private void closeQuietly(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            log.warn("Could not close message journal segment {}", segment.path, e);
+        }
+    }
+
+    private record Append(List<byte[]> records, CompletableFuture<Segment> result) {
+    }
+
+    public static final class Segment {
+
+        private final long sequence;
+        private final Path path;
+        private final FileChannel channel;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean deleted = new AtomicBoolean();
+        private volatile boolean sealed;
+
+        private Segment(long sequence, Path path, FileChannel channel) {
+            this.sequence = sequence;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.connectrix_back.connectrix.message;
+
+import com.connectrix_back.connectrix.chat.Chat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageJournalRecord {
+
+    private Long id;
+    private String chatId;
+    private String content;
+    private MessageState state;
+    private MessageType type;
+    private String senderId;
+    private String receiverId;
+    private String mediaFilePath;
+    private String mediaContentType;
+    private Long mediaSize;
+    private String mediaHash;
+    private LocalDateTime acceptedDate;
+    private String clientMessageId;
+
+    public static MessageJournalRecord of(Message message) {
+        return MessageJournalRecord.builder()
+                .id(message.getId())
+                .chatId(message.getChat().getId())
+                .content(message.getContent())
+                .state(message.getState())
+                .type(message.getType())
+                .senderId(message.getSenderId())
+                .receiverId(message.getReceiverId())
+                .mediaFilePath(message.getMediaFilePath())
+                .mediaContentType(message.getMediaContentType())
+                .mediaSize(message.getMediaSize())
+                .mediaHash(message.getMediaHash())
+                .acceptedDate(message.getAcceptedDate())
+                .clientMessageId(message.getClientMessageId())
+                .build();
+    }
+
+    public Message toMessage(Chat chat) {
+        Message message = new Message();
+        message.setId(id);
+        message.setChat(chat);
+        message.setContent(content);
+        message.setState(state);
+        message.setType(type);
+        message.setSenderId(senderId);
+        message.setReceiverId(receiverId);
+        message.setMediaFilePath(mediaFilePath);
+        message.setMediaContentType(mediaContentType);
+        message.setMediaSize(mediaSize);
+        message.setMediaHash(mediaHash);
+        message.setAcceptedDate(acceptedDate);
+        message.setClientMessageId(clientMessageId);
+        return message;
+    }
+}
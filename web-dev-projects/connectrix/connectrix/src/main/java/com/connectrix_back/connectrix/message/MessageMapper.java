@@ -1,20 +1,51 @@
 package com.connectrix_back.connectrix.message;
 
-import com.connectrix_back.connectrix.file.FileUtils;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+
 @Service
 public class MessageMapper {
-    public MessageResponse toMessageResponse(Message message) {
+    public MessageResponse toMessageResponse(Message message, ChatReadState readState, Map<String, String> placeholders) {
         return MessageResponse.builder()
                 .id(message.getId())
                 .content(message.getContent())
                 .senderId(message.getSenderId())
                 .receiverId(message.getReceiverId())
                 .type(message.getType())
-                .state(message.getState())
-                .createdAt(message.getCreatedDate())
-                .media(FileUtils.readFileFromLocation(message.getMediaFilePath()))
+                .state(readState.stateOf(message))
+                // not stamped before the insert, a pending write-behind message shows when it was accepted
+                .createdAt(message.getCreatedDate() != null ? message.getCreatedDate() : message.getAcceptedDate())
+                .mediaUrl(toMediaUrl(message))
+                .previewUrl(toPreviewUrl(message))
+                .placeholder(message.getMediaHash() != null ? placeholders.get(message.getMediaHash()) : null)
+                .mediaContentType(message.getMediaContentType())
+                .mediaSize(message.getMediaSize())
+                .build();
+    }
+
+    public String toMediaUrl(Message message) {
+        if (message.getMediaFilePath() == null) {
+            return null;
+        }
+        return String.format(MessageConstants.MEDIA_URL, message.getId());
+    }
+
+    public String toPreviewUrl(Message message) {
+        if (message.getMediaFilePath() == null || message.getType() != MessageType.IMAGE) {
+            return null;
+        }
+        return String.format(MessageConstants.MEDIA_PREVIEW_URL, message.getId());
+    }
+
+    public MessageSearchResult toMessageSearchResult(MessageSearchHit hit) {
+        return MessageSearchResult.builder()
+                .messageId(hit.getMessageId())
+                .chatId(hit.getChatId())
+                .senderId(hit.getSenderId())
+                .createdAt(hit.getCreatedAt())
+                .snippet(hit.getSnippet())
+                .rank(hit.getRank())
                 .build();
     }
 }
@@ -0,0 +1,18 @@
+package com.connectrix_back.connectrix.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+
+@Getter
+@AllArgsConstructor
+@Builder
+public class MessageMedia {
+
+    private Resource resource;
+    private MediaType contentType;
+    private MessageType type;
+    private long size;
+}
@@ -0,0 +1,7 @@
+package com.connectrix_back.connectrix.message;
+
+public enum MessagePageDirection {
+
+    BEFORE,
+    AFTER
+}
@@ -0,0 +1,166 @@
+package com.connectrix_back.connectrix.message;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Keeps the monthly partitions of {@code messages} ahead of the clock and moves partitions older
+ * than the hot window into {@link MessageArchive} segments, detaching and dropping them afterwards.
+ */
+@Service
+@Slf4j
+public class MessagePartitionService {
+
+    private static final String PARTITION_PREFIX = "messages_p";
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final String ARCHIVE_LOCK = "messages_archive";
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String FIND_PARTITIONS = """
+            SELECT c.relname FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = 'messages' AND c.relname LIKE 'messages\\_p%'
+            ORDER BY c.relname""";
+    private static final String SELECT_PARTITION_ROWS = """
+            SELECT id, chat_id, content, state, type, sender_id, receiver_id, media_file_path,
+                   media_content_type, media_size, media_hash, created_date, last_modified_date
+            FROM %s ORDER BY chat_id, created_date, id""";
+
+    private static final String HAS_DEFAULT_ROWS = """
+            SELECT EXISTS (SELECT 1 FROM messages_default WHERE created_date >= ? AND created_date < ?)""";
+    private static final String MOVE_DEFAULT_ROWS = """
+            WITH moved AS (
+                DELETE FROM messages_default WHERE created_date >= ? AND created_date < ?
+                RETURNING id, created_date, last_modified_date, content, media_content_type, media_file_path,
+                          media_size, receiver_id, sender_id, state, type, chat_id, media_hash
+            )
+            INSERT INTO %s (id, created_date, last_modified_date, content, media_content_type, media_file_path,
+                            media_size, receiver_id, sender_id, state, type, chat_id, media_hash)
+            SELECT * FROM moved""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageArchive messageArchive;
+    private final int hotMonths;
+    private final int partitionsAhead;
+
+    public MessagePartitionService(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   MessageArchive messageArchive,
+                                   @Value("${application.messages.archive.hot-months}") int hotMonths,
+                                   @Value("${application.messages.archive.partitions-ahead}") int partitionsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.messageArchive = messageArchive;
+        this.hotMonths = hotMonths;
+        this.partitionsAhead = partitionsAhead;
+    }
+
+    @PostConstruct
+    public void createPartitions() {
+        final YearMonth current = YearMonth.now();
+        for (int i = 0; i <= partitionsAhead; i++) {
+            createPartition(current.plusMonths(i));
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        final String partition = partitionName(month);
+        final LocalDateTime from = month.atDay(1).atStartOfDay();
+        final LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        final String bounds = "FOR VALUES FROM ('" + from.toLocalDate() + "') TO ('" + to.toLocalDate() + "')";
+        transactionTemplate.executeWithoutResult(status -> {
+            // the archive job and other nodes creating the same month wait on one another
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?))", rs -> {}, ARCHIVE_LOCK);
+            if (jdbcTemplate.queryForObject("SELECT to_regclass(?)", String.class, partition) != null) {
+                return;
+            }
+            // no new rows of the month reach messages_default while they are moved out of it
+            jdbcTemplate.execute("LOCK TABLE messages_default IN EXCLUSIVE MODE");
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_DEFAULT_ROWS, Boolean.class, from, to))) {
+                jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF messages " + bounds);
+                return;
+            }
+            jdbcTemplate.execute("CREATE TABLE " + partition
+                    + " (LIKE messages INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING GENERATED)");
+            final int moved = jdbcTemplate.update(MOVE_DEFAULT_ROWS.formatted(partition), from, to);
+            jdbcTemplate.execute("ALTER TABLE messages ATTACH PARTITION " + partition + " " + bounds);
+            log.info("Moved {} messages of {} from messages_default into {}", moved, month, partition);
+        });
+    }
+
+    @Scheduled(cron = "${application.messages.archive.cron}")
+    public void maintainPartitions() {
+        createPartitions();
+        archiveColdPartitions();
+    }
+
+    public int archiveColdPartitions() {
+        final YearMonth horizon = YearMonth.now().minusMonths(hotMonths);
+        int archived = 0;
+        for (String partition : jdbcTemplate.queryForList(FIND_PARTITIONS, String.class)) {
+            final YearMonth month = monthOf(partition);
+            if (month.isBefore(horizon) && archive(partition, month)) {
+                archived++;
+            }
+        }
+        return archived;
+    }
+
+    private boolean archive(String partition, YearMonth month) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            // one node archives at a time, the others skip this run
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT pg_try_advisory_xact_lock(hashtext(?))", Boolean.class, ARCHIVE_LOCK))) {
+                return false;
+            }
+            if (jdbcTemplate.queryForObject("SELECT to_regclass(?)", String.class, partition) == null) {
+                return false;
+            }
+            // late writes to a cold month would be lost between reading and dropping the partition
+            jdbcTemplate.execute("LOCK TABLE " + partition + " IN SHARE MODE");
+            try (MessageArchive.SegmentWriter writer = messageArchive.openSegment(month.atDay(1))) {
+                jdbcTemplate.query(con -> {
+                    final PreparedStatement statement = con.prepareStatement(SELECT_PARTITION_ROWS.formatted(partition));
+                    statement.setFetchSize(FETCH_SIZE);
+                    return statement;
+                }, rs -> {
+                    try {
+                        writer.append(MessageArchiveRecord.of(rs));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (writer.getMessageCount() > 0) {
+                    writer.commit();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not archive message partition " + partition, e);
+            }
+            jdbcTemplate.execute("ALTER TABLE messages DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            return true;
+        }));
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_MONTH);
+    }
+
+    private static YearMonth monthOf(String partition) {
+        return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_MONTH);
+    }
+}
@@ -1,18 +1,79 @@
 package com.connectrix_back.connectrix.message;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
 
     @Query(name = MessageConstants.FIND_MESSAGES_BY_CHAT_ID)
     List<Message> findMessagesByChatId(@Param("chatId") String chatId);
 
-    @Query(name = MessageConstants.SET_MESSAGES_TO_SEEN_BY_CHAT)
-    @Modifying
-    void setMessagesToSeenByChatId(@Param("chatId") String chatId, @Param("newState") MessageState state);
-}
\ No newline at end of file
+    @Query(name = MessageConstants.FIND_LATEST_MESSAGES_BY_CHAT_ID)
+    List<Message> findLatestMessagesByChatId(@Param("chatId") String chatId, Limit limit);
+
+    @Query(name = MessageConstants.FIND_EARLIEST_MESSAGES_BY_CHAT_ID)
+    List<Message> findEarliestMessagesByChatId(@Param("chatId") String chatId, Limit limit);
+
+    @Query(name = MessageConstants.FIND_MESSAGES_BEFORE_CURSOR)
+    List<Message> findMessagesBeforeCursor(@Param("chatId") String chatId,
+                                           @Param("createdDate") LocalDateTime createdDate,
+                                           @Param("id") Long id,
+                                           Limit limit);
+
+    @Query(name = MessageConstants.FIND_MESSAGES_AFTER_CURSOR)
+    List<Message> findMessagesAfterCursor(@Param("chatId") String chatId,
+                                          @Param("createdDate") LocalDateTime createdDate,
+                                          @Param("id") Long id,
+                                          Limit limit);
+
+    // a forward-only cursor, rows arrive from the database a fetch at a time while the caller consumes them
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + MessageConstants.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(name = MessageConstants.FIND_EARLIEST_MESSAGES_BY_CHAT_ID)
+    Stream<Message> streamMessagesByChatId(@Param("chatId") String chatId);
+
+    @Query(name = MessageConstants.FIND_LATEST_MESSAGE_ID_BY_CHAT_ID)
+    Long findLatestMessageId(@Param("chatId") String chatId);
+
+    @Query(name = MessageConstants.FIND_EXISTING_MESSAGE_IDS)
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // ts_headline is costly, so it only runs on the rows of the requested page
+    @Query(value = """
+            SELECT h.id AS messageId,
+                   h.chat_id AS chatId,
+                   h.sender_id AS senderId,
+                   h.created_date AS createdAt,
+                   ts_headline('simple', h.content, websearch_to_tsquery('simple', :query),
+                               'StartSel="", StopSel="", MaxWords=24, MinWords=8') AS snippet,
+                   h.rank AS rank
+              FROM (SELECT m.id, m.chat_id, m.sender_id, m.created_date, m.content,
+                           ts_rank(m.content_tsv, q) AS rank
+                      FROM messages m
+                      JOIN chat c ON c.id = m.chat_id
+                     CROSS JOIN websearch_to_tsquery('simple', :query) q
+                     WHERE m.content_tsv @@ q
+                       AND (c.sender_id = :userId OR c.recipient_id = :userId)
+                       AND (CAST(:chatId AS VARCHAR) IS NULL OR m.chat_id = :chatId)
+                     ORDER BY rank DESC, m.id DESC
+                     LIMIT :limit OFFSET :offset) h
+             ORDER BY h.rank DESC, h.id DESC
+            """, nativeQuery = true)
+    List<MessageSearchHit> searchMessages(@Param("userId") String userId,
+                                          @Param("query") String query,
+                                          @Param("chatId") String chatId,
+                                          @Param("limit") int limit,
+                                          @Param("offset") int offset);
+}
@@ -18,4 +18,6 @@ public class MessageRequest {
     private String receiverId;
     private MessageType type;
     private String chatId;
+    // optional, retries carrying the same id are acknowledged with the original message
+    private String clientMessageId;
 }
\ No newline at end of file
@@ -22,5 +22,9 @@ public class MessageResponse {
     private String senderId;
     private String receiverId;
     private LocalDateTime createdAt;
-    private byte[] media;
+    private String mediaUrl;
+    private String previewUrl;
+    private String placeholder;
+    private String mediaContentType;
+    private Long mediaSize;
 }
@@ -0,0 +1,18 @@
+package com.connectrix_back.connectrix.message;
+
+import java.time.LocalDateTime;
+
+public interface MessageSearchHit {
+
+    Long getMessageId();
+
+    String getChatId();
+
+    String getSenderId();
+
+    LocalDateTime getCreatedAt();
+
+    String getSnippet();
+
+    double getRank();
+}
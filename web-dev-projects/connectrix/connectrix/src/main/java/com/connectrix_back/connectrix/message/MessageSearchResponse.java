@@ -0,0 +1,22 @@
+package com.connectrix_back.connectrix.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MessageSearchResponse {
+
+    private List<MessageSearchResult> hits;
+    private int page;
+    private int size;
+    private boolean hasMore;
+}
@@ -0,0 +1,24 @@
+package com.connectrix_back.connectrix.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MessageSearchResult {
+
+    private Long messageId;
+    private String chatId;
+    private String senderId;
+    private LocalDateTime createdAt;
+    private String snippet;
+    private double rank;
+}
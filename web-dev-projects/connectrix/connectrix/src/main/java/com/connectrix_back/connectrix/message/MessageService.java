@@ -2,77 +2,362 @@ package com.connectrix_back.connectrix.message;
 
 import com.connectrix_back.connectrix.chat.Chat;
 import com.connectrix_back.connectrix.chat.ChatRepository;
+import com.connectrix_back.connectrix.common.VersionStampService;
 import com.connectrix_back.connectrix.file.FileService;
-import com.connectrix_back.connectrix.file.FileUtils;
+import com.connectrix_back.connectrix.file.MediaPreviewService;
+import com.connectrix_back.connectrix.file.MediaVariant;
+import com.connectrix_back.connectrix.file.StoredMedia;
 import com.connectrix_back.connectrix.notification.Notification;
 import com.connectrix_back.connectrix.notification.NotificationService;
 import com.connectrix_back.connectrix.notification.NotificationType;
+import com.connectrix_back.connectrix.sync.SyncService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class MessageService {
 
     private final MessageRepository messageRepository;
+    private final MessageWriter messageWriter;
+    private final MessageIdAllocator messageIdAllocator;
+    private final ReadWatermarkRepository readWatermarkRepository;
     private final ChatRepository chatRepository;
     private final MessageMapper mapper;
     private final NotificationService notificationService;
     private final FileService fileService;
+    private final MediaPreviewService mediaPreviewService;
+    private final VersionStampService versionStampService;
+    private final MessageArchive messageArchive;
+    private final SyncService syncService;
+    private final MessageDeduplicator messageDeduplicator;
+    private final RecentMessageBuffer recentMessageBuffer;
+    private final MediaUrlSigner mediaUrlSigner;
 
     public void saveMessage(MessageRequest messageRequest) {
-        Chat chat = chatRepository.findById(messageRequest.getChatId())
+        Chat chat = findChat(messageRequest.getChatId());
+        Message message = toMessage(messageRequest, chat);
+
+        write(List.of(message));
+    }
+
+    public MessageAck sendMessage(MessageRequest messageRequest, Authentication authentication) {
+        Chat chat = findChat(messageRequest.getChatId());
+        checkParticipant(chat, authentication);
+        messageRequest.setSenderId(getSenderId(chat, authentication));
+        messageRequest.setReceiverId(getRecipientId(chat, authentication));
+        Message message = toMessage(messageRequest, chat);
+
+        write(List.of(message));
+        return messageDeduplicator.ackOf(message);
+    }
+
+    public void saveMessages(List<MessageRequest> messageRequests, Authentication authentication) {
+        if (messageRequests.size() > MessageConstants.MAX_SEND_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MessageConstants.MAX_SEND_BATCH_SIZE + " messages can be sent at once");
+        }
+        final Map<String, Chat> chats = new HashMap<>();
+        for (MessageRequest request : messageRequests) {
+            final Chat chat = chats.computeIfAbsent(request.getChatId(), chatId -> {
+                final Chat found = findChat(chatId);
+                checkParticipant(found, authentication);
+                return found;
+            });
+            request.setSenderId(getSenderId(chat, authentication));
+            request.setReceiverId(getRecipientId(chat, authentication));
+        }
+        final List<Message> messages = messageRequests.stream()
+                .map(r -> toMessage(r, chats.get(r.getChatId())))
+                .toList();
+
+        write(messages);
+    }
+
+    // retries of a client message id are acknowledged without writing or notifying again
+    private void write(List<Message> messages) {
+        final List<Message> accepted = new ArrayList<>();
+        try {
+            for (Message message : messages) {
+                if (messageDeduplicator.accept(message) == null) {
+                    accepted.add(message);
+                }
+            }
+            if (!accepted.isEmpty()) {
+                messageWriter.write(accepted);
+            }
+        } catch (RuntimeException e) {
+            accepted.forEach(messageDeduplicator::forget);
+            throw e;
+        }
+        accepted.stream()
+                .filter(m -> !messageDeduplicator.isDuplicate(m))
+                .forEach(this::sendMessageNotification);
+    }
+
+    private Chat findChat(String chatId) {
+        return chatRepository.findById(chatId)
                 .orElseThrow(() -> new EntityNotFoundException("Chat not found"));
+    }
 
-        Message message = new Message();
+    private Message toMessage(MessageRequest messageRequest, Chat chat) {
+        Message message = newMessage();
         message.setContent(messageRequest.getContent());
         message.setChat(chat);
         message.setSenderId(messageRequest.getSenderId());
         message.setReceiverId(messageRequest.getReceiverId());
         message.setType(messageRequest.getType());
         message.setState(MessageState.SENT);
+        message.setClientMessageId(messageRequest.getClientMessageId());
+        return message;
+    }
 
-        messageRepository.save(message);
+    private Message newMessage() {
+        Message message = new Message();
+        message.setId(messageIdAllocator.nextId());
+        // the precision Postgres keeps, so cursors taken from a pending message match the stored row
+        message.setAcceptedDate(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        return message;
+    }
 
+    private void sendMessageNotification(Message message) {
+        final Chat chat = message.getChat();
         Notification notification = Notification.builder()
                 .chatId(chat.getId())
-                .messageType(messageRequest.getType())
-                .content(messageRequest.getContent())
-                .senderId(messageRequest.getSenderId())
-                .receiverId(messageRequest.getReceiverId())
+                .messageId(message.getId())
+                .messageType(message.getType())
+                .content(message.getContent())
+                .senderId(message.getSenderId())
+                .receiverId(message.getReceiverId())
                 .type(NotificationType.MESSAGE)
                 .chatName(chat.getTargetChatName(message.getSenderId()))
                 .build();
 
-        notificationService.sendNotification(messageRequest.getReceiverId(), notification);
+        notificationService.sendNotification(message.getReceiverId(), notification);
     }
 
+    @Transactional(readOnly = true)
     public List<MessageResponse> findChatMessages(String chatId) {
-        return messageRepository.findMessagesByChatId(chatId)
-                .stream()
-                .map(mapper::toMessageResponse)
+        final List<Message> pending = messageWriter.findPendingByChatId(chatId);
+        final ChatReadState readState = findReadState(chatId);
+        final Chat chat = chatRepository.getReferenceById(chatId);
+        final List<Message> messages = new ArrayList<>(messageArchive.findChatMessages(chatId).stream()
+                .map(r -> r.toMessage(chat))
+                .toList());
+        messages.addAll(messageRepository.findMessagesByChatId(chatId));
+        final Set<Long> present = messages.stream().map(Message::getId).collect(Collectors.toSet());
+        pending.stream().filter(m -> !present.contains(m.getId())).forEach(messages::add);
+        final Map<String, String> placeholders = findPlaceholders(messages);
+        return messages.stream()
+                .map(m -> mapper.toMessageResponse(m, readState, placeholders))
                 .toList();
     }
 
+    @Transactional(readOnly = true)
+    public MessagePageResponse findChatMessagesPage(String chatId,
+                                                    String cursor,
+                                                    MessagePageDirection direction,
+                                                    int size,
+                                                    long chatVersion) {
+        final int pageSize = Math.max(1, Math.min(size, MessageConstants.MAX_PAGE_SIZE));
+        final MessageCursor position = MessageCursor.decode(cursor);
+        if (position == null && direction == MessagePageDirection.BEFORE) {
+            // taken before the rows, a message flushed in between then shows up twice instead of not at all
+            final List<Message> pending = messageWriter.findPendingByChatId(chatId);
+            final MessagePageResponse latest = pageSize <= recentMessageBuffer.getCapacity()
+                    ? recentMessageBuffer.findLatestPage(chatId, chatVersion, pageSize)
+                            .orElseGet(() -> fillRecentMessages(chatId, chatVersion, pageSize))
+                    : findPage(chatId, null, direction, pageSize);
+            return withPending(chatId, latest, pending, pageSize);
+        }
+        return findPage(chatId, position, direction, pageSize);
+    }
+
+    private MessagePageResponse findPage(String chatId,
+                                         MessageCursor position,
+                                         MessagePageDirection direction,
+                                         int pageSize) {
+
+        List<Message> messages = findPageRows(chatId, position, direction, pageSize + 1);
+        final boolean hasMore = messages.size() > pageSize;
+        if (hasMore) {
+            messages = messages.subList(0, pageSize);
+        }
+
+        String nextCursor = position != null ? position.encode() : null;
+        if (!messages.isEmpty()) {
+            nextCursor = MessageCursor.of(messages.get(messages.size() - 1)).encode();
+        }
+        if (direction == MessagePageDirection.BEFORE) {
+            Collections.reverse(messages);
+        }
+
+        final ChatReadState readState = findReadState(chatId);
+        final Map<String, String> placeholders = findPlaceholders(messages);
+        return MessagePageResponse.builder()
+                .messages(messages.stream().map(m -> mapper.toMessageResponse(m, readState, placeholders)).toList())
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    // write-behind messages are acknowledged and notified before they reach the table, so the
+    // latest page shows them already; they are never kept in the recent message buffer
+    private MessagePageResponse withPending(String chatId, MessagePageResponse page, List<Message> pending, int pageSize) {
+        final Set<Long> present = page.getMessages().stream().map(MessageResponse::getId).collect(Collectors.toSet());
+        final List<Message> missing = pending.stream().filter(m -> !present.contains(m.getId())).toList();
+        if (missing.isEmpty()) {
+            return page;
+        }
+        final ChatReadState readState = findReadState(chatId);
+        final List<MessageResponse> merged = new ArrayList<>(page.getMessages());
+        missing.forEach(m -> merged.add(mapper.toMessageResponse(m, readState, Map.of())));
+        merged.sort(Comparator.comparing(MessageResponse::getCreatedAt).thenComparing(MessageResponse::getId));
+        final int dropped = Math.max(0, merged.size() - pageSize);
+        final MessageResponse oldest = merged.get(dropped);
+        return MessagePageResponse.builder()
+                .messages(List.copyOf(merged.subList(dropped, merged.size())))
+                .nextCursor(new MessageCursor(oldest.getCreatedAt(), oldest.getId()).encode())
+                .hasMore(page.isHasMore() || dropped > 0)
+                .build();
+    }
+
+    // reads the whole buffer rather than the page, so the next first pages of the chat are hits
+    private MessagePageResponse fillRecentMessages(String chatId, long chatVersion, int pageSize) {
+        final int capacity = recentMessageBuffer.getCapacity();
+        final List<Message> messages = new ArrayList<>(findPageRows(chatId, null, MessagePageDirection.BEFORE, capacity + 1));
+        final boolean hasOlder = messages.size() > capacity;
+        final List<Message> latest = messages.subList(0, Math.min(messages.size(), capacity));
+        Collections.reverse(latest);
+
+        final ChatReadState readState = findReadState(chatId);
+        final Map<String, String> placeholders = findPlaceholders(latest);
+        return recentMessageBuffer.fill(chatId, chatVersion,
+                latest.stream().map(m -> mapper.toMessageResponse(m, readState, placeholders)).toList(), hasOlder, pageSize);
+    }
+
+    // archived months are older than anything left in the table: walking back continues into the
+    // archive once the table runs out, walking forward drains the archive before the table
+    private List<Message> findPageRows(String chatId,
+                                       MessageCursor position,
+                                       MessagePageDirection direction,
+                                       int limit) {
+        final Chat chat = chatRepository.getReferenceById(chatId);
+        final List<Message> rows = new ArrayList<>();
+        if (direction == MessagePageDirection.AFTER) {
+            messageArchive.findMessagesAfter(chatId, position, limit).forEach(r -> rows.add(r.toMessage(chat)));
+            if (rows.size() < limit) {
+                rows.addAll(findTableRows(chatId, lastPosition(rows, position), direction, Limit.of(limit - rows.size())));
+            }
+            return rows;
+        }
+        rows.addAll(findTableRows(chatId, position, direction, Limit.of(limit)));
+        if (rows.size() < limit) {
+            messageArchive.findMessagesBefore(chatId, lastPosition(rows, position), limit - rows.size())
+                    .forEach(r -> rows.add(r.toMessage(chat)));
+        }
+        return rows;
+    }
+
+    private static MessageCursor lastPosition(List<Message> rows, MessageCursor position) {
+        return rows.isEmpty() ? position : MessageCursor.of(rows.get(rows.size() - 1));
+    }
+
+    private List<Message> findTableRows(String chatId,
+                                        MessageCursor position,
+                                        MessagePageDirection direction,
+                                        Limit limit) {
+        if (direction == MessagePageDirection.AFTER) {
+            if (position == null) {
+                return messageRepository.findEarliestMessagesByChatId(chatId, limit);
+            }
+            return messageRepository.findMessagesAfterCursor(chatId, position.getCreatedDate(), position.getId(), limit);
+        }
+        if (position == null) {
+            return messageRepository.findLatestMessagesByChatId(chatId, limit);
+        }
+        return messageRepository.findMessagesBeforeCursor(chatId, position.getCreatedDate(), position.getId(), limit);
+    }
+
+    @Transactional(readOnly = true)
+    public MessageSearchResponse searchMessages(String query,
+                                                String chatId,
+                                                int page,
+                                                int size,
+                                                Authentication authentication) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty");
+        }
+        if (query.length() > MessageConstants.MAX_SEARCH_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search query is too long");
+        }
+        final int pageSize = Math.max(1, Math.min(size, MessageConstants.MAX_SEARCH_PAGE_SIZE));
+        final int pageIndex = Math.max(0, page);
+
+        final List<MessageSearchHit> hits = messageRepository.searchMessages(
+                authentication.getName(), query, chatId, pageSize + 1, pageIndex * pageSize);
+        final boolean hasMore = hits.size() > pageSize;
+        return MessageSearchResponse.builder()
+                .hits(hits.stream().limit(pageSize).map(mapper::toMessageSearchResult).toList())
+                .page(pageIndex)
+                .size(pageSize)
+                .hasMore(hasMore)
+                .build();
+    }
+
     @Transactional
-    public void setMessagesToSeen(String chatId, Authentication authentication) {
+    public void setMessagesToSeen(String chatId, Long messageId, Authentication authentication) {
         Chat chat = chatRepository.findById(chatId)
                 .orElseThrow(() -> new RuntimeException("Chat not found"));
         final String recipientId = getRecipientId(chat, authentication);
+        final String readerId = getSenderId(chat, authentication);
 
-        messageRepository.setMessagesToSeenByChatId(chatId, MessageState.SEEN);
+        // a seen may follow the notification of a message that is still pending in write-behind
+        final Long latestMessageId = Stream.concat(
+                        Stream.ofNullable(messageRepository.findLatestMessageId(chatId)),
+                        messageWriter.findPendingByChatId(chatId).stream().map(Message::getId))
+                .max(Long::compare)
+                .orElse(null);
+        if (latestMessageId == null) {
+            return;
+        }
+        final Long watermark = messageId == null ? latestMessageId : Math.min(messageId, latestMessageId);
+        readWatermarkRepository.advance(chatId, readerId, watermark);
+        versionStampService.bump(List.of(chatId), List.of(readerId, recipientId));
+        // buffered messages carry their read state, the bumped version alone would leave them in memory until idle
+        recentMessageBuffer.invalidate(chatId);
+        syncService.recordSeen(chatId, readerId, recipientId, watermark);
 
         Notification notification = Notification.builder()
                 .chatId(chat.getId())
                 .type(NotificationType.SEEN)
                 .receiverId(recipientId)
-                .senderId(getSenderId(chat, authentication))
+                .senderId(readerId)
+                .lastReadMessageId(watermark)
                 .build();
 
         notificationService.sendNotification(recipientId, notification);
@@ -85,28 +370,143 @@ public class MessageService {
         final String senderId = getSenderId(chat, authentication);
         final String receiverId = getRecipientId(chat, authentication);
 
-        final String filePath = fileService.saveFile(file, senderId);
-        Message message = new Message();
+        final MediaType contentType = resolveContentType(file);
+        final MessageType messageType = resolveMessageType(contentType);
+        Message message = newMessage();
         message.setReceiverId(receiverId);
         message.setSenderId(senderId);
         message.setState(MessageState.SENT);
-        message.setType(MessageType.IMAGE);
-        message.setMediaFilePath(filePath);
+        message.setType(messageType);
+        message.setMediaContentType(contentType.toString());
         message.setChat(chat);
-        messageRepository.save(message);
+
+        final StoredMedia media = fileService.saveFile(file);
+        message.setMediaFilePath(media.getFilePath());
+        message.setMediaHash(media.getHash());
+        message.setMediaSize(media.getSize());
+        try {
+            messageWriter.write(List.of(message));
+        } catch (RuntimeException e) {
+            fileService.releaseFile(media.getHash());
+            throw e;
+        }
+        if (messageType == MessageType.IMAGE) {
+            mediaPreviewService.generatePreviews(media);
+        }
 
         Notification notification = Notification.builder()
                 .chatId(chat.getId())
-                .type(NotificationType.IMAGE)
+                .type(NotificationType.valueOf(messageType.name()))
                 .senderId(senderId)
                 .receiverId(receiverId)
-                .messageType(MessageType.IMAGE)
-                .media(FileUtils.readFileFromLocation(filePath))
+                .messageType(messageType)
+                .messageId(message.getId())
+                .mediaUrl(mapper.toMediaUrl(message))
+                .previewUrl(mapper.toPreviewUrl(message))
+                .mediaContentType(message.getMediaContentType())
+                .mediaSize(message.getMediaSize())
                 .build();
 
         notificationService.sendNotification(receiverId, notification);
     }
 
+    // a link the media players can range-request without the bearer token
+    public MediaUrlResponse signMediaUrl(Long messageId, Authentication authentication) {
+        findMediaMessage(messageId, authentication.getName());
+        return mediaUrlSigner.sign(messageId, authentication.getName());
+    }
+
+    public MessageMedia findMessageMedia(Long messageId, MediaVariant variant, String userId) {
+        final Message message = findMediaMessage(messageId, userId);
+
+        if (message.getType() == MessageType.IMAGE && message.getMediaHash() != null) {
+            final Optional<MessageMedia> preview = mediaPreviewService.findPreview(message.getMediaHash(), variant)
+                    .map(path -> fileService.loadFile(path.toString()))
+                    .map(resource -> MessageMedia.builder()
+                            .resource(resource)
+                            .contentType(MediaType.IMAGE_JPEG)
+                            .type(message.getType())
+                            .size(contentLength(resource))
+                            .build());
+            if (preview.isPresent()) {
+                return preview.get();
+            }
+        }
+
+        Resource resource = fileService.loadFile(message.getMediaFilePath());
+        MediaType contentType = message.getMediaContentType() != null
+                ? MediaType.parseMediaType(message.getMediaContentType())
+                : MediaTypeFactory.getMediaType(resource).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        return MessageMedia.builder()
+                .resource(resource)
+                .contentType(contentType)
+                .type(message.getType())
+                .size(contentLength(resource))
+                .build();
+    }
+
+    private Message findMediaMessage(Long messageId, String userId) {
+        final Message message = messageRepository.findById(messageId)
+                .or(() -> messageWriter.findPending(messageId))
+                .or(() -> messageArchive.findMessage(messageId, userId).map(r -> r.toMessage(null)))
+                .orElseThrow(() -> new EntityNotFoundException("Message not found"));
+        if (!userId.equals(message.getSenderId()) && !userId.equals(message.getReceiverId())) {
+            throw new AccessDeniedException("Not a participant of this chat");
+        }
+        if (message.getMediaFilePath() == null) {
+            throw new EntityNotFoundException("Message has no media");
+        }
+        return message;
+    }
+
+    private long contentLength(Resource resource) {
+        try {
+            return resource.contentLength();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read media file " + resource.getDescription(), e);
+        }
+    }
+
+    private MediaType resolveContentType(MultipartFile file) {
+        if (file.getContentType() != null) {
+            return MediaType.parseMediaType(file.getContentType());
+        }
+        return MediaTypeFactory.getMediaType(file.getOriginalFilename())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    private MessageType resolveMessageType(MediaType contentType) {
+        return switch (contentType.getType()) {
+            case "audio" -> MessageType.AUDIO;
+            case "video" -> MessageType.VIDEO;
+            default -> MessageType.IMAGE;
+        };
+    }
+
+    private Map<String, String> findPlaceholders(List<Message> messages) {
+        return mediaPreviewService.findPlaceholders(messages.stream()
+                .filter(m -> m.getType() == MessageType.IMAGE)
+                .map(Message::getMediaHash)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList());
+    }
+
+    private ChatReadState findReadState(String chatId) {
+        return ChatReadState.of(readWatermarkRepository.findByChatId(chatId));
+    }
+
+    public void checkParticipant(String chatId, Authentication authentication) {
+        checkParticipant(findChat(chatId), authentication);
+    }
+
+    private void checkParticipant(Chat chat, Authentication authentication) {
+        final String userId = authentication.getName();
+        if (!userId.equals(chat.getSender().getId()) && !userId.equals(chat.getRecipient().getId())) {
+            throw new AccessDeniedException("Not a participant of this chat");
+        }
+    }
+
     private String getSenderId(Chat chat, Authentication authentication) {
         if (chat.getSender().getId().equals(authentication.getName())) {
             return chat.getSender().getId();
@@ -0,0 +1,51 @@
+package com.connectrix_back.connectrix.message;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+
+// replies reach clients subscribed to /user/{userId}/queue/ack and /user/{userId}/queue/errors,
+// the same way notifications reach /user/{userId}/chat
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+public class MessageStompController {
+
+    private final MessageService messageService;
+
+    @MessageMapping("/chat.send")
+    @SendToUser(destinations = MessageConstants.ACK_DESTINATION)
+    public MessageAck sendMessage(
+            @Payload MessageRequest message,
+            @Header(name = MessageConstants.CORRELATION_ID_HEADER, required = false) String correlationId,
+            Authentication authentication
+    ) {
+        MessageAck ack = messageService.sendMessage(message, authentication);
+        ack.setCorrelationId(correlationId);
+        return ack;
+    }
+
+    @MessageMapping("/chat.seen")
+    public void setMessagesToSeen(@Payload MessageSeenRequest request, Authentication authentication) {
+        messageService.setMessagesToSeen(request.getChatId(), request.getMessageId(), authentication);
+    }
+
+    @MessageExceptionHandler
+    @SendToUser(destinations = MessageConstants.ERROR_DESTINATION)
+    public MessageError handleException(
+            Exception exception,
+            @Header(name = MessageConstants.CORRELATION_ID_HEADER, required = false) String correlationId
+    ) {
+        log.warn("Could not handle STOMP message: {}", exception.getMessage());
+        return MessageError.builder()
+                .correlationId(correlationId)
+                .error(exception.getMessage())
+                .build();
+    }
+}
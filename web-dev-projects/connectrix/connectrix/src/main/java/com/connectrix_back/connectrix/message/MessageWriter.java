@@ -0,0 +1,18 @@
+package com.connectrix_back.connectrix.message;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface MessageWriter {
+
+    /**
+     * Returns once the messages are durable: committed to the database, or appended
+     * to the local journal when write-behind ingestion is enabled.
+     */
+    void write(List<Message> messages);
+
+    Optional<Message> findPending(Long messageId);
+
+    // acknowledged messages of the chat that are not in the database yet, in id order
+    List<Message> findPendingByChatId(String chatId);
+}
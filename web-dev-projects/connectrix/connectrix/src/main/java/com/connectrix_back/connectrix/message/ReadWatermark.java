@@ -0,0 +1,34 @@
+package com.connectrix_back.connectrix.message;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "read_watermarks")
+@IdClass(ReadWatermarkId.class)
+@NamedQuery(name = MessageConstants.FIND_READ_WATERMARKS_BY_CHAT_ID,
+        query = "SELECT w FROM ReadWatermark w WHERE w.chatId = :chatId"
+)
+public class ReadWatermark {
+
+    @Id
+    @Column(name = "chat_id")
+    private String chatId;
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+    @Column(name = "last_read_message_id", nullable = false)
+    private Long lastReadMessageId;
+}
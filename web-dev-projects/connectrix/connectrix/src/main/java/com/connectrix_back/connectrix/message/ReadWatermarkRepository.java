@@ -0,0 +1,28 @@
+package com.connectrix_back.connectrix.message;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ReadWatermarkRepository extends JpaRepository<ReadWatermark, ReadWatermarkId> {
+
+    @Query(name = MessageConstants.FIND_READ_WATERMARKS_BY_CHAT_ID)
+    List<ReadWatermark> findByChatId(@Param("chatId") String chatId);
+
+    // names the table it writes, otherwise Hibernate clears the whole second-level cache
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "read_watermarks"))
+    @Query(value = """
+            INSERT INTO read_watermarks (chat_id, user_id, last_read_message_id)
+            VALUES (:chatId, :userId, :messageId)
+            ON CONFLICT (chat_id, user_id) DO UPDATE
+               SET last_read_message_id = GREATEST(read_watermarks.last_read_message_id, EXCLUDED.last_read_message_id)
+            """, nativeQuery = true)
+    void advance(@Param("chatId") String chatId, @Param("userId") String userId, @Param("messageId") Long messageId);
+}
@@ -0,0 +1,156 @@
+package com.connectrix_back.connectrix.message;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The latest messages of recently read chats, so the first page of a chat's history is served
+ * from memory. A buffer belongs to one version of the chat's stamp: it is only served while the
+ * stamp is unchanged and only extended by a committed write that moved the stamp by exactly one.
+ * Writes of other nodes and seen updates therefore make it miss, and the next read rebuilds it.
+ */
+@Component
+public class RecentMessageBuffer {
+
+    private static final Comparator<MessageResponse> CURSOR_ORDER =
+            Comparator.comparing(MessageResponse::getCreatedAt).thenComparing(MessageResponse::getId);
+
+    private final MessageMapper mapper;
+    private final int capacity;
+    // weighed by message count, so the cap holds across all chats however many are buffered
+    private final Cache<String, Snapshot> chats;
+    private final Counter hits;
+    private final Counter misses;
+
+    public RecentMessageBuffer(MessageMapper mapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${application.messages.recent.capacity}") int capacity,
+                               @Value("${application.messages.recent.max-messages}") long maxMessages,
+                               @Value("${application.messages.recent.idle-timeout}") Duration idleTimeout) {
+        this.mapper = mapper;
+        this.capacity = capacity;
+        this.chats = Caffeine.newBuilder()
+                .maximumWeight(maxMessages)
+                .weigher((String chatId, Snapshot snapshot) -> Math.max(1, snapshot.messages().size()))
+                .expireAfterAccess(idleTimeout)
+                .recordStats()
+                .build();
+        this.hits = meterRegistry.counter("connectrix.messages.recent.pages", "result", "hit");
+        this.misses = meterRegistry.counter("connectrix.messages.recent.pages", "result", "miss");
+        meterRegistry.gauge("connectrix.messages.recent.hit.ratio", this, RecentMessageBuffer::hitRatio);
+        CaffeineCacheMetrics.monitor(meterRegistry, chats, "recent-messages");
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Optional<MessagePageResponse> findLatestPage(String chatId, long chatVersion, int size) {
+        final Snapshot snapshot = chats.getIfPresent(chatId);
+        if (snapshot == null || snapshot.version() != chatVersion || !snapshot.covers(size)) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(snapshot.page(size));
+    }
+
+    /**
+     * Keeps the latest messages read from the database, oldest first. The version must have been
+     * read before the messages, so the buffer is never older than the version it is served for.
+     */
+    public MessagePageResponse fill(String chatId, long chatVersion, List<MessageResponse> messages, boolean hasOlder, int size) {
+        final Snapshot snapshot = new Snapshot(chatVersion, List.copyOf(messages), hasOlder);
+        chats.asMap().merge(chatId, snapshot, (current, filled) -> current.version() > filled.version() ? current : filled);
+        return snapshot.page(size);
+    }
+
+    // applied after commit, a rolled back write must not show up in a buffer
+    public void append(List<Message> messages, Map<String, Long> chatVersions) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(messages, chatVersions);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(messages, chatVersions);
+            }
+        });
+    }
+
+    public void invalidate(String chatId) {
+        chats.invalidate(chatId);
+    }
+
+    private void apply(List<Message> messages, Map<String, Long> chatVersions) {
+        final ChatReadState unread = ChatReadState.of(List.of());
+        final Map<String, List<MessageResponse>> byChat = messages.stream()
+                .collect(Collectors.groupingBy(m -> m.getChat().getId(),
+                        Collectors.mapping(m -> mapper.toMessageResponse(m, unread, Map.of()), Collectors.toList())));
+        byChat.forEach((chatId, added) -> {
+            final Long version = chatVersions.get(chatId);
+            chats.asMap().computeIfPresent(chatId, (id, snapshot) ->
+                    version != null && snapshot.version() == version - 1 ? snapshot.append(added, version, capacity) : null);
+        });
+    }
+
+    private double hitRatio() {
+        final double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private record Snapshot(long version, List<MessageResponse> messages, boolean hasOlder) {
+
+        boolean covers(int size) {
+            return size <= messages.size() || !hasOlder;
+        }
+
+        MessagePageResponse page(int size) {
+            final List<MessageResponse> page = messages.subList(Math.max(0, messages.size() - size), messages.size());
+            return MessagePageResponse.builder()
+                    .messages(page)
+                    .nextCursor(page.isEmpty() ? null
+                            : new MessageCursor(page.get(0).getCreatedAt(), page.get(0).getId()).encode())
+                    .hasMore(messages.size() > size || hasOlder)
+                    .build();
+        }
+
+        // returns null, dropping the buffer, when a message would not land at the end
+        Snapshot append(List<MessageResponse> added, long newVersion, int capacity) {
+            final Set<Long> present = messages.stream().map(MessageResponse::getId).collect(Collectors.toCollection(HashSet::new));
+            final List<MessageResponse> fresh = added.stream()
+                    .filter(m -> !present.contains(m.getId()))
+                    .sorted(CURSOR_ORDER)
+                    .toList();
+            if (!fresh.isEmpty() && !messages.isEmpty() && CURSOR_ORDER.compare(fresh.get(0), messages.get(messages.size() - 1)) <= 0) {
+                return null;
+            }
+            final List<MessageResponse> combined = new ArrayList<>(messages.size() + fresh.size());
+            combined.addAll(messages);
+            combined.addAll(fresh);
+            final int dropped = Math.max(0, combined.size() - capacity);
+            return new Snapshot(newVersion, List.copyOf(combined.subList(dropped, combined.size())), hasOlder || dropped > 0);
+        }
+    }
+}
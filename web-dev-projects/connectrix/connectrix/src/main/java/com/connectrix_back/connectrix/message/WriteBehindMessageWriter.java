@@ -0,0 +1,345 @@
+package com.connectrix_back.connectrix.message;
+
+import com.connectrix_back.connectrix.chat.Chat;
+import com.connectrix_back.connectrix.chat.ChatRepository;
+import com.connectrix_back.connectrix.common.VersionStampService;
+import com.connectrix_back.connectrix.notification.Notification;
+import com.connectrix_back.connectrix.notification.NotificationService;
+import com.connectrix_back.connectrix.notification.NotificationType;
+import com.connectrix_back.connectrix.sync.SyncService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "application.messages.ingest.mode", havingValue = "write-behind")
+public class WriteBehindMessageWriter implements MessageWriter {
+
+    private static final String DEAD_LETTER_FILE = "dead-letter.log";
+
+    private final MessageRepository messageRepository;
+    private final ChatRepository chatRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final VersionStampService versionStampService;
+    private final SyncService syncService;
+    private final MessageDeduplicator messageDeduplicator;
+    private final RecentMessageBuffer recentMessageBuffer;
+    private final NotificationService notificationService;
+    private final ObjectMapper objectMapper;
+    private final Path journalPath;
+    private final Path deadLetterPath;
+    private final Duration groupCommitInterval;
+    private final long segmentSize;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Semaphore capacity;
+    private final BlockingQueue<JournaledMessage> queue = new LinkedBlockingQueue<>();
+    private final Map<Long, Message> pending = new ConcurrentHashMap<>();
+    private final Thread flusher = new Thread(this::flushLoop, "message-flusher");
+    private final MeterRegistry meterRegistry;
+    private final Counter flushed;
+    private final Counter skipped;
+    private final Timer flushTimer;
+    private volatile boolean running = true;
+    private MessageJournal journal;
+
+    public WriteBehindMessageWriter(MessageRepository messageRepository,
+                                    ChatRepository chatRepository,
+                                    TransactionTemplate transactionTemplate,
+                                    VersionStampService versionStampService,
+                                    SyncService syncService,
+                                    MessageDeduplicator messageDeduplicator,
+                                    RecentMessageBuffer recentMessageBuffer,
+                                    NotificationService notificationService,
+                                    ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${application.messages.ingest.journal-path}") Path journalPath,
+                                    @Value("${application.messages.ingest.group-commit-interval}") Duration groupCommitInterval,
+                                    @Value("${application.messages.ingest.segment-size}") DataSize segmentSize,
+                                    @Value("${application.messages.ingest.queue-capacity}") int queueCapacity,
+                                    @Value("${application.messages.ingest.batch-size}") int batchSize,
+                                    @Value("${application.messages.ingest.flush-interval}") Duration flushInterval) {
+        this.messageRepository = messageRepository;
+        this.chatRepository = chatRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.versionStampService = versionStampService;
+        this.syncService = syncService;
+        this.messageDeduplicator = messageDeduplicator;
+        this.recentMessageBuffer = recentMessageBuffer;
+        this.notificationService = notificationService;
+        this.objectMapper = objectMapper;
+        this.journalPath = journalPath;
+        // next to the segments, but not named like one, so it is never replayed
+        this.deadLetterPath = journalPath.resolve(DEAD_LETTER_FILE);
+        this.groupCommitInterval = groupCommitInterval;
+        this.segmentSize = segmentSize.toBytes();
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.capacity = new Semaphore(queueCapacity);
+        this.meterRegistry = meterRegistry;
+        this.flushed = meterRegistry.counter("connectrix.messages.ingest.flushed");
+        this.skipped = meterRegistry.counter("connectrix.messages.ingest.skipped");
+        this.flushTimer = meterRegistry.timer("connectrix.messages.ingest.flush");
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        final List<Path> segments = MessageJournal.listSegments(journalPath);
+        replay(segments);
+        final long firstSequence = segments.isEmpty() ? 0 : MessageJournal.sequenceOf(segments.get(segments.size() - 1)) + 1;
+        for (Path segment : segments) {
+            Files.delete(segment);
+        }
+
+        journal = new MessageJournal(journalPath, firstSequence, groupCommitInterval, segmentSize,
+                meterRegistry.timer("connectrix.messages.ingest.journal.commit"));
+        meterRegistry.gauge("connectrix.messages.ingest.queue.depth", queue, BlockingQueue::size);
+        meterRegistry.gauge("connectrix.messages.ingest.journal.pending", journal, MessageJournal::pendingAppends);
+        meterRegistry.gauge("connectrix.messages.ingest.journal.segments", journal, MessageJournal::segmentCount);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        journal.close();
+        running = false;
+        flusher.join();
+    }
+
+    @Override
+    public void write(List<Message> messages) {
+        final List<byte[]> records = messages.stream().map(this::serialize).toList();
+        if (!capacity.tryAcquire(messages.size())) {
+            throw new IllegalStateException("Message ingest queue is full");
+        }
+        messages.forEach(m -> pending.put(m.getId(), m));
+        final MessageJournal.Segment segment;
+        try {
+            segment = journal.append(records).join();
+        } catch (CompletionException e) {
+            messages.forEach(m -> pending.remove(m.getId()));
+            capacity.release(messages.size());
+            throw new IllegalStateException("Could not journal messages", e.getCause());
+        }
+        messages.forEach(m -> queue.add(new JournaledMessage(m, segment)));
+    }
+
+    @Override
+    public Optional<Message> findPending(Long messageId) {
+        return Optional.ofNullable(pending.get(messageId));
+    }
+
+    // pending holds at most the queue capacity, and rarely more than a flush interval's worth
+    @Override
+    public List<Message> findPendingByChatId(String chatId) {
+        return pending.values().stream()
+                .filter(m -> chatId.equals(m.getChat().getId()))
+                .sorted(Comparator.comparing(Message::getId))
+                .toList();
+    }
+
+    private byte[] serialize(Message message) {
+        try {
+            return objectMapper.writeValueAsBytes(MessageJournalRecord.of(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize message", e);
+        }
+    }
+
+    private void flushLoop() {
+        final List<JournaledMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                final JournaledMessage first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                final long deadline = System.nanoTime() + flushInterval.toNanos();
+                long remaining;
+                while (batch.size() < batchSize && (remaining = deadline - System.nanoTime()) > 0) {
+                    final JournaledMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<JournaledMessage> batch) throws InterruptedException {
+        final List<Message> messages = batch.stream().map(JournaledMessage::message).toList();
+        while (true) {
+            try {
+                flushTimer.record(() -> persist(messages));
+                break;
+            } catch (RuntimeException e) {
+                messages.forEach(m -> m.setPersisted(false));
+                if (!running) {
+                    // left in the journal, replayed on the next start
+                    log.error("Could not flush {} messages before shutdown", messages.size(), e);
+                    return;
+                }
+                log.warn("Could not flush {} messages, retrying", messages.size(), e);
+                Thread.sleep(1000);
+            }
+        }
+
+        flushed.increment(messages.size());
+        batch.stream()
+                .collect(Collectors.groupingBy(JournaledMessage::segment, Collectors.counting()))
+                .forEach((segment, count) -> journal.release(segment, count.intValue()));
+        messages.forEach(m -> pending.remove(m.getId()));
+        capacity.release(messages.size());
+    }
+
+    private int persist(List<Message> messages) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                final List<Message> claimed = messageDeduplicator.claim(messages);
+                messageRepository.saveAll(claimed);
+                recordChanges(claimed);
+            });
+            return messages.size();
+        } catch (DataIntegrityViolationException e) {
+            messages.forEach(m -> m.setPersisted(false));
+            int inserted = 0;
+            for (Message message : messages) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        final List<Message> claimed = messageDeduplicator.claim(List.of(message));
+                        messageRepository.saveAll(claimed);
+                        recordChanges(claimed);
+                    });
+                    inserted++;
+                } catch (DataIntegrityViolationException ex) {
+                    // a batch retried after a lost commit fails on the rows it already inserted
+                    if (!messageRepository.findExistingIds(List.of(message.getId())).isEmpty()) {
+                        inserted++;
+                        continue;
+                    }
+                    deadLetter(message, ex);
+                }
+            }
+            return inserted;
+        }
+    }
+
+    // the message was acked and notified already: keep it for an operator and take it back from both clients
+    private void deadLetter(Message message, DataIntegrityViolationException cause) {
+        skipped.increment();
+        log.error("Moving message {} that cannot be inserted to {}: {}",
+                message.getId(), deadLetterPath, cause.getMostSpecificCause().getMessage());
+        final byte[] record = serialize(message);
+        final byte[] line = Arrays.copyOf(record, record.length + 1);
+        line[record.length] = '\n';
+        try {
+            Files.write(deadLetterPath, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+        } catch (IOException e) {
+            // the flush is retried, the message stays in the journal until it is dead-lettered
+            throw new UncheckedIOException("Could not dead-letter message " + message.getId(), e);
+        }
+        messageDeduplicator.forget(message);
+        final Notification retraction = Notification.builder()
+                .chatId(message.getChat().getId())
+                .type(NotificationType.RETRACTED)
+                .messageId(message.getId())
+                .senderId(message.getSenderId())
+                .receiverId(message.getReceiverId())
+                .build();
+        notificationService.sendNotification(message.getReceiverId(), retraction);
+        notificationService.sendNotification(message.getSenderId(), retraction);
+    }
+
+    // in the inserting transaction, so neither an ETag nor a sync cursor covers a message that is not readable yet
+    private void recordChanges(List<Message> messages) {
+        final Map<String, Long> chatVersions = versionStampService.bump(
+                messages.stream().map(m -> m.getChat().getId()).collect(Collectors.toSet()),
+                messages.stream().flatMap(m -> Stream.of(m.getSenderId(), m.getReceiverId())).collect(Collectors.toSet()));
+        syncService.recordMessages(messages);
+        recentMessageBuffer.append(messages, chatVersions);
+    }
+
+    private void replay(List<Path> segments) {
+        final Map<Long, MessageJournalRecord> records = new LinkedHashMap<>();
+        for (Path segment : segments) {
+            try {
+                MessageJournal.readRecords(segment, line -> {
+                    try {
+                        MessageJournalRecord record = objectMapper.readValue(line, MessageJournalRecord.class);
+                        records.put(record.getId(), record);
+                    } catch (JsonProcessingException e) {
+                        log.warn("Skipping torn record in message journal {}", segment);
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read message journal " + segment, e);
+            }
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+
+        final List<MessageJournalRecord> all = new ArrayList<>(records.values());
+        int replayed = 0;
+        for (int from = 0; from < all.size(); from += batchSize) {
+            final List<MessageJournalRecord> chunk = all.subList(from, Math.min(from + batchSize, all.size()));
+            final Set<Long> existing = new HashSet<>(messageRepository.findExistingIds(
+                    chunk.stream().map(MessageJournalRecord::getId).toList()));
+            final Map<String, Chat> chats = new HashMap<>();
+            final List<Message> missing = chunk.stream()
+                    .filter(r -> !existing.contains(r.getId()))
+                    .map(r -> r.toMessage(chats.computeIfAbsent(r.getChatId(), chatRepository::getReferenceById)))
+                    .toList();
+            replayed += persist(missing);
+        }
+        log.info("Replayed {} of {} journaled messages", replayed, all.size());
+    }
+
+    private record JournaledMessage(Message message, MessageJournal.Segment segment) {
+    }
+}
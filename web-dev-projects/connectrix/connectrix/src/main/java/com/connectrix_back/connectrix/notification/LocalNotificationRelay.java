@@ -0,0 +1,45 @@
+package com.connectrix_back.connectrix.notification;
+
+import com.connectrix_back.connectrix.presence.PresenceRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "application.cluster.mode", havingValue = "local", matchIfMissing = true)
+public class LocalNotificationRelay implements NotificationRelay {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PresenceRegistry presenceRegistry;
+
+    @Override
+    public void deliver(String userId, Notification notification) {
+        messagingTemplate.convertAndSendToUser(userId, NotificationConstants.USER_DESTINATION, notification);
+    }
+
+    @Override
+    public boolean userConnected(String userId) {
+        return true;
+    }
+
+    @Override
+    public boolean userDisconnected(String userId) {
+        return true;
+    }
+
+    @Override
+    public boolean isConnected(String userId) {
+        return presenceRegistry.isOnline(userId);
+    }
+
+    @Override
+    public Set<String> connectedAmong(Collection<String> userIds) {
+        return userIds.stream().filter(presenceRegistry::isOnline).collect(Collectors.toSet());
+    }
+}
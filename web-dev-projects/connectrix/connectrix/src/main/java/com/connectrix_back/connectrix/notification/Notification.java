@@ -7,6 +7,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.util.List;
+
 @Getter
 @Setter
 @AllArgsConstructor
@@ -21,5 +23,11 @@ public class Notification {
     private String chatName;
     private MessageType messageType;
     private NotificationType type;
-    private byte[] media;
-}
\ No newline at end of file
+    private Long messageId;
+    private Long lastReadMessageId;
+    private String mediaUrl;
+    private String previewUrl;
+    private String mediaContentType;
+    private Long mediaSize;
+    private List<Notification> notifications;
+}
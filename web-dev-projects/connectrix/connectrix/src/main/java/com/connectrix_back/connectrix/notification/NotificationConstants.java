@@ -0,0 +1,8 @@
+package com.connectrix_back.connectrix.notification;
+
+public class NotificationConstants {
+
+    public static final String USER_DESTINATION = "/chat";
+
+    private NotificationConstants() {}
+}
@@ -0,0 +1,191 @@
+package com.connectrix_back.connectrix.notification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers notifications per user for a short window and delivers them as one frame. Within a
+ * window only the latest SEEN per chat and reader and the latest presence change per user are kept.
+ * Window timers run on a single thread, frames are delivered by a fixed set of threads with
+ * every user pinned to one of them, so frames for one user keep their order and a slow delivery
+ * only holds up the users sharing its thread.
+ */
+@Component
+@Slf4j
+public class NotificationDispatcher {
+
+    private final NotificationRelay notificationRelay;
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+    private final Map<String, PendingFrame> frames = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "notification-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService[] deliverers;
+    private final Counter coalesced;
+    private final Counter delivered;
+    private final DistributionSummary frameSize;
+
+    public NotificationDispatcher(NotificationRelay notificationRelay,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${application.notifications.batch-window}") Duration batchWindow,
+                                  @Value("${application.notifications.max-batch-size}") int maxBatchSize,
+                                  @Value("${application.notifications.delivery-threads}") int deliveryThreads) {
+        this.notificationRelay = notificationRelay;
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.deliverers = new ExecutorService[Math.max(1, deliveryThreads)];
+        for (int i = 0; i < deliverers.length; i++) {
+            final String name = "notification-delivery-" + i;
+            deliverers[i] = Executors.newSingleThreadExecutor(r -> {
+                final Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.coalesced = meterRegistry.counter("connectrix.notifications.coalesced");
+        this.delivered = meterRegistry.counter("connectrix.notifications.frames");
+        this.frameSize = meterRegistry.summary("connectrix.notifications.frame.size");
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        frames.keySet().forEach(this::flush);
+        for (ExecutorService deliverer : deliverers) {
+            deliverer.shutdown();
+        }
+        for (ExecutorService deliverer : deliverers) {
+            deliverer.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    public void dispatch(String userId, Notification notification) {
+        if (batchWindowNanos <= 0) {
+            deliver(userId, List.of(notification));
+            return;
+        }
+        frames.compute(userId, (id, frame) -> {
+            if (frame == null) {
+                frame = new PendingFrame();
+                schedule(id, batchWindowNanos);
+            }
+            if (frame.add(coalescingKey(notification), notification)) {
+                coalesced.increment();
+            }
+            if (frame.size() >= maxBatchSize) {
+                final PendingFrame full = frame;
+                submit(id, () -> deliver(id, full));
+                return null;
+            }
+            return frame;
+        });
+    }
+
+    private void schedule(String userId, long delayNanos) {
+        try {
+            scheduler.schedule(() -> flush(userId), delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down, pending frames are flushed by stop()
+            log.debug("Could not schedule notification flush for {}", userId);
+        }
+    }
+
+    private void submit(String userId, Runnable task) {
+        try {
+            deliverers[Math.floorMod(userId.hashCode(), deliverers.length)].execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    // handed over while the frame is removed, so it cannot overtake a full frame submitted by dispatch
+    private void flush(String userId) {
+        frames.computeIfPresent(userId, (id, frame) -> {
+            submit(id, () -> deliver(id, frame));
+            return null;
+        });
+    }
+
+    private void deliver(String userId, PendingFrame frame) {
+        try {
+            deliver(userId, frame.notifications());
+        } catch (RuntimeException e) {
+            log.error("Could not deliver {} notifications to {}", frame.size(), userId, e);
+        }
+    }
+
+    private void deliver(String userId, List<Notification> notifications) {
+        delivered.increment();
+        frameSize.record(notifications.size());
+        if (log.isDebugEnabled()) {
+            log.debug("Delivering {} notifications to {}: {}", notifications.size(), userId,
+                    notifications.stream().map(NotificationDispatcher::describe).toList());
+        }
+        if (notifications.size() == 1) {
+            notificationRelay.deliver(userId, notifications.get(0));
+            return;
+        }
+        notificationRelay.deliver(userId, Notification.builder()
+                .type(NotificationType.BATCH)
+                .receiverId(userId)
+                .notifications(notifications)
+                .build());
+    }
+
+    private String coalescingKey(Notification notification) {
+        return switch (notification.getType()) {
+            case SEEN -> "SEEN:" + notification.getChatId() + ":" + notification.getSenderId();
+            case ONLINE, OFFLINE -> "PRESENCE:" + notification.getSenderId();
+            default -> "#" + sequence.incrementAndGet();
+        };
+    }
+
+    private static String describe(Notification notification) {
+        return notification.getType() + "[chat=" + notification.getChatId()
+                + ", message=" + (notification.getMessageId() != null
+                ? notification.getMessageId() : notification.getLastReadMessageId()) + "]";
+    }
+
+    private static final class PendingFrame {
+
+        private final LinkedHashMap<String, Notification> notifications = new LinkedHashMap<>();
+
+        // a replaced notification moves to the end so the frame keeps the order of the latest events
+        boolean add(String key, Notification notification) {
+            final boolean replaced = notifications.remove(key) != null;
+            notifications.put(key, notification);
+            return replaced;
+        }
+
+        int size() {
+            return notifications.size();
+        }
+
+        List<Notification> notifications() {
+            return new ArrayList<>(notifications.values());
+        }
+    }
+}
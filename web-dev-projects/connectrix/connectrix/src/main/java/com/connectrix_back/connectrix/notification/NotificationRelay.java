@@ -0,0 +1,20 @@
+package com.connectrix_back.connectrix.notification;
+
+import java.util.Collection;
+import java.util.Set;
+
+public interface NotificationRelay {
+
+    void deliver(String userId, Notification notification);
+
+    // true when no other node had the user connected, so the user just came online
+    boolean userConnected(String userId);
+
+    // true when no node has the user connected any more
+    boolean userDisconnected(String userId);
+
+    boolean isConnected(String userId);
+
+    // the connected users among a page of users, in one lookup for the whole page
+    Set<String> connectedAmong(Collection<String> userIds);
+}
@@ -1,23 +1,15 @@
 package com.connectrix_back.connectrix.notification;
 
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
-@Slf4j
 public class NotificationService {
 
-    private final SimpMessagingTemplate messagingTemplate;
+    private final NotificationDispatcher notificationDispatcher;
 
     public void sendNotification(String userId, Notification notification) {
-        log.info("Sending WS notification to {} with payload {}", userId, notification);
-        messagingTemplate.convertAndSendToUser(
-                userId,
-                "/chat",
-                notification
-        );
+        notificationDispatcher.dispatch(userId, notification);
     }
 }
@@ -8,5 +8,9 @@ public enum NotificationType {
     IMAGE,
     AUDIO,
     VIDEO,
+    ONLINE,
+    OFFLINE,
+    BATCH,
+    RETRACTED,
 
 }
@@ -0,0 +1,213 @@
+package com.connectrix_back.connectrix.notification;
+
+import com.connectrix_back.connectrix.presence.PresenceRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Relays notifications between connectrix nodes with Postgres LISTEN/NOTIFY. Each node listens
+ * on its own channel and only receives notifications for users connected to it, as recorded
+ * in the {@link UserNodeRegistry}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "application.cluster.mode", havingValue = "postgres")
+public class PostgresNotificationRelay implements NotificationRelay {
+
+    // NOTIFY payloads must stay below 8000 bytes
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final String PARKED_PREFIX = "@";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PresenceRegistry presenceRegistry;
+    private final UserNodeRegistry userNodeRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectMapper objectMapper;
+    private final Counter relayed;
+    private final Counter received;
+    private final Thread listener = new Thread(this::listen, "notification-relay");
+    private volatile boolean running = true;
+
+    public PostgresNotificationRelay(SimpMessagingTemplate messagingTemplate,
+                                     PresenceRegistry presenceRegistry,
+                                     UserNodeRegistry userNodeRegistry,
+                                     JdbcTemplate jdbcTemplate,
+                                     DataSourceProperties dataSourceProperties,
+                                     ObjectMapper objectMapper,
+                                     MeterRegistry meterRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.presenceRegistry = presenceRegistry;
+        this.userNodeRegistry = userNodeRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.objectMapper = objectMapper;
+        this.relayed = meterRegistry.counter("connectrix.notifications.relayed");
+        this.received = meterRegistry.counter("connectrix.notifications.relay.received");
+    }
+
+    @PostConstruct
+    public void start() {
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        listener.join(5000);
+    }
+
+    @Override
+    public void deliver(String userId, Notification notification) {
+        if (presenceRegistry.isOnline(userId)) {
+            deliverLocally(userId, notification);
+        }
+        final List<String> nodes = userNodeRegistry.nodesOf(userId);
+        for (String node : nodes) {
+            if (!node.equals(userNodeRegistry.getNodeId())) {
+                publish(node, userId, notification);
+            }
+        }
+    }
+
+    @Override
+    public boolean userConnected(String userId) {
+        return userNodeRegistry.register(userId);
+    }
+
+    @Override
+    public boolean userDisconnected(String userId) {
+        return userNodeRegistry.unregister(userId);
+    }
+
+    @Override
+    public boolean isConnected(String userId) {
+        return presenceRegistry.isOnline(userId) || !userNodeRegistry.nodesOf(userId).isEmpty();
+    }
+
+    @Override
+    public Set<String> connectedAmong(Collection<String> userIds) {
+        final Set<String> connected = new HashSet<>();
+        final List<String> elsewhere = new ArrayList<>();
+        userIds.forEach(userId -> (presenceRegistry.isOnline(userId) ? connected : elsewhere).add(userId));
+        if (!elsewhere.isEmpty()) {
+            userNodeRegistry.nodesOf(elsewhere).forEach((userId, nodes) -> {
+                if (!nodes.isEmpty()) {
+                    connected.add(userId);
+                }
+            });
+        }
+        return connected;
+    }
+
+    @Scheduled(fixedDelayString = "${application.cluster.heartbeat-interval}")
+    public void purgeParkedNotifications() {
+        jdbcTemplate.update("DELETE FROM relayed_notifications WHERE created_at < now() - interval '5 minutes'");
+    }
+
+    private void publish(String node, String userId, Notification notification) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(new RelayedNotification(userId, notification));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize notification", e);
+        }
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+            final Long id = jdbcTemplate.queryForObject(
+                    "INSERT INTO relayed_notifications (payload) VALUES (?) RETURNING id", Long.class, payload);
+            payload = PARKED_PREFIX + id;
+        }
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> {}, userNodeRegistry.channelOf(node), payload);
+        relayed.increment();
+    }
+
+    private void listen() {
+        final String channel = userNodeRegistry.channelOf(userNodeRegistry.getNodeId());
+        while (running) {
+            // opened outside the pool, a listener holds its connection for the life of the node
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN \"" + channel + "\"");
+                    statement.execute("LISTEN " + UserNodeRegistry.INVALIDATION_CHANNEL);
+                }
+                final PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    final PGNotification[] notifications = pgConnection.getNotifications(500);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        handle(notification);
+                    }
+                }
+            } catch (SQLException e) {
+                log.warn("Notification relay connection lost, reconnecting", e);
+                sleepBeforeReconnect();
+            }
+        }
+    }
+
+    private void handle(PGNotification notification) {
+        if (UserNodeRegistry.INVALIDATION_CHANNEL.equals(notification.getName())) {
+            userNodeRegistry.invalidate(notification.getParameter());
+            return;
+        }
+        try {
+            String payload = notification.getParameter();
+            if (payload.startsWith(PARKED_PREFIX)) {
+                final List<String> parked = jdbcTemplate.queryForList(
+                        "DELETE FROM relayed_notifications WHERE id = ? RETURNING payload", String.class,
+                        Long.parseLong(payload.substring(PARKED_PREFIX.length())));
+                if (parked.isEmpty()) {
+                    return;
+                }
+                payload = parked.get(0);
+            }
+            final RelayedNotification relayedNotification = objectMapper.readValue(payload, RelayedNotification.class);
+            received.increment();
+            deliverLocally(relayedNotification.getUserId(), relayedNotification.getNotification());
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("Could not deliver relayed notification", e);
+        }
+    }
+
+    private void deliverLocally(String userId, Notification notification) {
+        messagingTemplate.convertAndSendToUser(userId, NotificationConstants.USER_DESTINATION, notification);
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.connectrix_back.connectrix.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RelayedNotification {
+
+    private String userId;
+    private Notification notification;
+}
@@ -0,0 +1,152 @@
+package com.connectrix_back.connectrix.notification;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "application.cluster.mode", havingValue = "postgres")
+public class UserNodeRegistry {
+
+    public static final String INVALIDATION_CHANNEL = "connectrix_user_nodes";
+
+    private static final String HEARTBEAT = """
+            INSERT INTO cluster_nodes (node_id, heartbeat_at) VALUES (?, now())
+            ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = EXCLUDED.heartbeat_at""";
+    private static final String REGISTER_USER = """
+            INSERT INTO user_nodes (user_id, node_id, connected_at) VALUES (?, ?, now())
+            ON CONFLICT (user_id, node_id) DO UPDATE SET connected_at = EXCLUDED.connected_at""";
+    private static final String FIND_USER_NODES = """
+            SELECT un.node_id FROM user_nodes un
+            JOIN cluster_nodes n ON n.node_id = un.node_id
+            WHERE un.user_id = ? AND n.heartbeat_at > now() - make_interval(secs => ?)""";
+    private static final String FIND_USERS_NODES = """
+            SELECT un.user_id, un.node_id FROM user_nodes un
+            JOIN cluster_nodes n ON n.node_id = un.node_id
+            WHERE un.user_id = ANY(?) AND n.heartbeat_at > now() - make_interval(secs => ?)""";
+    private static final String COUNT_OTHER_NODES = """
+            SELECT count(*) FROM user_nodes un
+            JOIN cluster_nodes n ON n.node_id = un.node_id
+            WHERE un.user_id = ? AND un.node_id <> ? AND n.heartbeat_at > now() - make_interval(secs => ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+    private final Duration staleAfter;
+    private final Cache<String, List<String>> nodesByUser;
+
+    public UserNodeRegistry(JdbcTemplate jdbcTemplate,
+                            @Value("${application.cluster.node-id:}") String nodeId,
+                            @Value("${application.cluster.stale-after}") Duration staleAfter,
+                            @Value("${application.cluster.registry-cache-ttl}") Duration registryCacheTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodeId = StringUtils.hasText(nodeId) ? nodeId : UUID.randomUUID().toString();
+        this.staleAfter = staleAfter;
+        this.nodesByUser = Caffeine.newBuilder()
+                .expireAfterWrite(registryCacheTtl)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    @PostConstruct
+    public void registerNode() {
+        jdbcTemplate.update(HEARTBEAT, nodeId);
+        // sessions of a previous run under the same node id are gone
+        jdbcTemplate.update("DELETE FROM user_nodes WHERE node_id = ?", nodeId);
+        log.info("Registered cluster node {}", nodeId);
+    }
+
+    @PreDestroy
+    public void unregisterNode() {
+        jdbcTemplate.update("DELETE FROM cluster_nodes WHERE node_id = ?", nodeId);
+    }
+
+    @Scheduled(fixedDelayString = "${application.cluster.heartbeat-interval}")
+    public void heartbeat() {
+        jdbcTemplate.update(HEARTBEAT, nodeId);
+        final int removed = jdbcTemplate.update(
+                "DELETE FROM cluster_nodes WHERE heartbeat_at < now() - make_interval(secs => ?)",
+                staleAfter.toSeconds());
+        if (removed > 0) {
+            log.warn("Removed {} stale cluster nodes", removed);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // channel identifiers are limited to 63 bytes
+    public String channelOf(String node) {
+        final String channel = "connectrix_node_" + node.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_]", "");
+        return channel.length() > 63 ? channel.substring(0, 63) : channel;
+    }
+
+    // returns whether no other node had the user, read past the cache
+    public boolean register(String userId) {
+        jdbcTemplate.update(REGISTER_USER, userId, nodeId);
+        publishChange(userId);
+        return !isConnectedElsewhere(userId);
+    }
+
+    // returns whether no other node has the user, read past the cache
+    public boolean unregister(String userId) {
+        jdbcTemplate.update("DELETE FROM user_nodes WHERE user_id = ? AND node_id = ?", userId, nodeId);
+        publishChange(userId);
+        return !isConnectedElsewhere(userId);
+    }
+
+    public List<String> nodesOf(String userId) {
+        return nodesByUser.get(userId, id ->
+                jdbcTemplate.queryForList(FIND_USER_NODES, String.class, id, staleAfter.toSeconds()));
+    }
+
+    // users missing from the cache are looked up in one query
+    public Map<String, List<String>> nodesOf(Collection<String> userIds) {
+        return nodesByUser.getAll(userIds, this::findNodes);
+    }
+
+    public void invalidate(String userId) {
+        nodesByUser.invalidate(userId);
+    }
+
+    private void publishChange(String userId) {
+        nodesByUser.invalidate(userId);
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> {}, INVALIDATION_CHANNEL, userId);
+    }
+
+    private Map<String, List<String>> findNodes(Set<? extends String> userIds) {
+        final Map<String, List<String>> nodes = new HashMap<>();
+        userIds.forEach(userId -> nodes.put(userId, new ArrayList<>()));
+        jdbcTemplate.query(FIND_USERS_NODES, statement -> {
+            statement.setArray(1, statement.getConnection().createArrayOf("text", userIds.toArray()));
+            statement.setLong(2, staleAfter.toSeconds());
+        }, rs -> {
+            nodes.get(rs.getString("user_id")).add(rs.getString("node_id"));
+        });
+        return nodes;
+    }
+
+    private boolean isConnectedElsewhere(String userId) {
+        final Long nodes = jdbcTemplate.queryForObject(COUNT_OTHER_NODES, Long.class, userId, nodeId, staleAfter.toSeconds());
+        return nodes != null && nodes > 0;
+    }
+}
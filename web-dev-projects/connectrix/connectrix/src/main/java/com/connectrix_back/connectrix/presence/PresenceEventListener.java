@@ -0,0 +1,29 @@
+package com.connectrix_back.connectrix.presence;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+@Component
+@RequiredArgsConstructor
+public class PresenceEventListener {
+
+    private final PresenceService presenceService;
+
+    @EventListener
+    public void onSessionConnected(SessionConnectedEvent event) {
+        if (event.getUser() == null) {
+            return;
+        }
+        final String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        presenceService.userConnected(sessionId, event.getUser().getName());
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        presenceService.sessionClosed(event.getSessionId());
+    }
+}
@@ -0,0 +1,99 @@
+package com.connectrix_back.connectrix.presence;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class PresenceRegistry {
+
+    private final Map<String, String> sessionUsers = new ConcurrentHashMap<>();
+    private final Map<String, UserPresence> users = new ConcurrentHashMap<>();
+    private final Map<String, LocalDateTime> pendingLastSeen = new ConcurrentHashMap<>();
+
+    public boolean connect(String sessionId, String userId) {
+        sessionUsers.put(sessionId, userId);
+        final LocalDateTime now = LocalDateTime.now();
+        final boolean[] cameOnline = {false};
+        users.compute(userId, (id, presence) -> {
+            UserPresence current = presence != null ? presence : new UserPresence();
+            cameOnline[0] = current.sessions.isEmpty();
+            current.sessions.add(sessionId);
+            current.lastSeen = now;
+            return current;
+        });
+        pendingLastSeen.put(userId, now);
+        return cameOnline[0];
+    }
+
+    public String disconnect(String sessionId) {
+        final String userId = sessionUsers.remove(sessionId);
+        if (userId == null) {
+            return null;
+        }
+        final LocalDateTime now = LocalDateTime.now();
+        final boolean[] wentOffline = {false};
+        users.computeIfPresent(userId, (id, presence) -> {
+            presence.sessions.remove(sessionId);
+            presence.lastSeen = now;
+            wentOffline[0] = presence.sessions.isEmpty();
+            return presence;
+        });
+        pendingLastSeen.put(userId, now);
+        return wentOffline[0] ? userId : null;
+    }
+
+    public void touch(String sessionId) {
+        final String userId = sessionUsers.get(sessionId);
+        if (userId == null) {
+            return;
+        }
+        final LocalDateTime now = LocalDateTime.now();
+        users.computeIfPresent(userId, (id, presence) -> {
+            presence.lastSeen = now;
+            return presence;
+        });
+        pendingLastSeen.put(userId, now);
+    }
+
+    public boolean isOnline(String userId) {
+        UserPresence presence = users.get(userId);
+        return presence != null && !presence.sessions.isEmpty();
+    }
+
+    public Optional<LocalDateTime> getLastSeen(String userId) {
+        return Optional.ofNullable(users.get(userId)).map(p -> p.lastSeen);
+    }
+
+    public Map<String, LocalDateTime> drainPendingLastSeen() {
+        Map<String, LocalDateTime> drained = new HashMap<>();
+        pendingLastSeen.forEach((userId, lastSeen) -> {
+            if (pendingLastSeen.remove(userId, lastSeen)) {
+                drained.put(userId, lastSeen);
+            }
+        });
+        return drained;
+    }
+
+    public void restorePendingLastSeen(Map<String, LocalDateTime> lastSeen) {
+        lastSeen.forEach(pendingLastSeen::putIfAbsent);
+    }
+
+    public void evictOfflineUsers() {
+        for (String userId : users.keySet()) {
+            if (!pendingLastSeen.containsKey(userId)) {
+                users.computeIfPresent(userId, (id, presence) -> presence.sessions.isEmpty() ? null : presence);
+            }
+        }
+    }
+
+    private static final class UserPresence {
+        private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+        private volatile LocalDateTime lastSeen;
+    }
+}
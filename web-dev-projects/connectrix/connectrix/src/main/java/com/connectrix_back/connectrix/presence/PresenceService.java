@@ -0,0 +1,97 @@
+package com.connectrix_back.connectrix.presence;
+
+import com.connectrix_back.connectrix.chat.ChatRepository;
+import com.connectrix_back.connectrix.common.VersionStampService;
+import com.connectrix_back.connectrix.notification.Notification;
+import com.connectrix_back.connectrix.notification.NotificationRelay;
+import com.connectrix_back.connectrix.notification.NotificationService;
+import com.connectrix_back.connectrix.notification.NotificationType;
+import com.connectrix_back.connectrix.user.User;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceService {
+
+    private static final String UPDATE_LAST_SEEN = "UPDATE users SET last_seen = ? WHERE id = ?";
+
+    private final PresenceRegistry presenceRegistry;
+    private final ChatRepository chatRepository;
+    private final NotificationService notificationService;
+    private final NotificationRelay notificationRelay;
+    private final JdbcTemplate jdbcTemplate;
+    private final VersionStampService versionStampService;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public void userConnected(String sessionId, String userId) {
+        // the first session on this node registers the user, ONLINE only goes out when no other node had it
+        if (presenceRegistry.connect(sessionId, userId) && notificationRelay.userConnected(userId)) {
+            publishPresence(userId, NotificationType.ONLINE);
+        }
+    }
+
+    public void sessionClosed(String sessionId) {
+        final String userId = presenceRegistry.disconnect(sessionId);
+        if (userId != null && notificationRelay.userDisconnected(userId)) {
+            publishPresence(userId, NotificationType.OFFLINE);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.presence.flush-interval}")
+    @Transactional
+    public void flushLastSeen() {
+        final Map<String, LocalDateTime> lastSeen = presenceRegistry.drainPendingLastSeen();
+        if (lastSeen.isEmpty()) {
+            return;
+        }
+        final List<Object[]> batch = lastSeen.entrySet()
+                .stream()
+                .map(e -> new Object[]{Timestamp.valueOf(e.getValue()), e.getKey()})
+                .toList();
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LAST_SEEN, batch);
+        } catch (RuntimeException e) {
+            presenceRegistry.restorePendingLastSeen(lastSeen);
+            throw e;
+        }
+        // the batch bypasses Hibernate, cached users would keep their old last seen
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastSeen.keySet().forEach(userId -> entityManagerFactory.getCache().evict(User.class, userId));
+            }
+        });
+        presenceRegistry.evictOfflineUsers();
+        log.debug("Flushed last seen of {} users", lastSeen.size());
+    }
+
+    private void publishPresence(String userId, NotificationType type) {
+        final List<String> partnerIds = chatRepository.findChatPartnerIds(userId)
+                .stream()
+                .distinct()
+                .toList();
+        // chat lists show whether the partner is online
+        versionStampService.bump(List.of(), partnerIds);
+        partnerIds.stream()
+                .filter(notificationRelay::isConnected)
+                .forEach(partnerId -> notificationService.sendNotification(partnerId, Notification.builder()
+                        .type(type)
+                        .senderId(userId)
+                        .receiverId(partnerId)
+                        .build()));
+    }
+}
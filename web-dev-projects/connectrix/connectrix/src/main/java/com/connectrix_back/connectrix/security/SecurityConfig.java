@@ -3,10 +3,13 @@ package com.connectrix_back.connectrix.security;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
@@ -41,6 +44,8 @@ public class SecurityConfig {
                                         "/swagger-ui.html",
                                         "/ws/**"
                                 ).permitAll()
+                                // media players range-request with a signed link, checked by the controller
+                                .requestMatchers(signedMediaRequests()).permitAll()
                                 .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(auth ->
@@ -50,6 +55,12 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private RequestMatcher signedMediaRequests() {
+        final RequestMatcher media = PathPatternRequestMatcher.withDefaults()
+                .matcher(HttpMethod.GET, "/api/v1/messages/*/media");
+        return request -> request.getParameter("token") != null && media.matches(request);
+    }
+
     @Bean
     public CorsFilter corsFilter() {
         final UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
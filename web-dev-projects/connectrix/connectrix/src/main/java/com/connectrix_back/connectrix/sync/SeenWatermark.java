@@ -0,0 +1,19 @@
+package com.connectrix_back.connectrix.sync;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SeenWatermark {
+
+    private String chatId;
+    private String readerId;
+    private Long lastReadMessageId;
+}
@@ -0,0 +1,10 @@
+package com.connectrix_back.connectrix.sync;
+
+public class SyncConstants {
+
+    // a page holds this many events, a transaction with more events is split across pages
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private SyncConstants() {}
+}
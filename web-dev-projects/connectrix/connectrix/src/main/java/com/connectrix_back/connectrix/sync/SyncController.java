@@ -0,0 +1,29 @@
+package com.connectrix_back.connectrix.sync;
+
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/sync")
+@RequiredArgsConstructor
+@Tag(name = "Sync")
+public class SyncController {
+
+    private final SyncService syncService;
+
+    @GetMapping
+    public ResponseEntity<SyncResponse> sync(
+            @RequestParam(name = "cursor", required = false) Long cursor,
+            @RequestParam(name = "ordinal", required = false) Integer ordinal,
+            @RequestParam(name = "size", defaultValue = "" + SyncConstants.DEFAULT_PAGE_SIZE) int size,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(syncService.sync(cursor, ordinal, size, authentication));
+    }
+}
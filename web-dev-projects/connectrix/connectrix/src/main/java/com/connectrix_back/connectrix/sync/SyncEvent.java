@@ -0,0 +1,24 @@
+package com.connectrix_back.connectrix.sync;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SyncEvent {
+
+    private String userId;
+    private long seq;
+    private int ordinal;
+    private SyncEventType type;
+    private String chatId;
+    private Long messageId;
+    private String readerId;
+    private Long lastReadMessageId;
+}
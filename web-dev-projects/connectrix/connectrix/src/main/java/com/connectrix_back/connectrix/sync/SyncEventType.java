@@ -0,0 +1,9 @@
+package com.connectrix_back.connectrix.sync;
+
+public enum SyncEventType {
+
+    MESSAGE,
+    SEEN,
+    CHAT,
+
+}
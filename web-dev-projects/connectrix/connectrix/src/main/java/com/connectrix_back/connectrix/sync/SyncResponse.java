@@ -0,0 +1,29 @@
+package com.connectrix_back.connectrix.sync;
+
+import com.connectrix_back.connectrix.chat.ChatResponse;
+import com.connectrix_back.connectrix.message.MessageResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SyncResponse {
+
+    private long cursor;
+    // set when the page ends inside the transaction at cursor, the last event of it that was served
+    private Integer ordinal;
+    private boolean hasMore;
+    // the cursor is unknown or older than the retention window, the client has to refetch its chats
+    private boolean resetRequired;
+    private List<ChatResponse> chats;
+    private List<MessageResponse> messages;
+    private List<SeenWatermark> seen;
+}
@@ -0,0 +1,256 @@
+package com.connectrix_back.connectrix.sync;
+
+import com.connectrix_back.connectrix.chat.Chat;
+import com.connectrix_back.connectrix.chat.ChatMapper;
+import com.connectrix_back.connectrix.chat.ChatRepository;
+import com.connectrix_back.connectrix.chat.ChatResponse;
+import com.connectrix_back.connectrix.message.ChatReadState;
+import com.connectrix_back.connectrix.message.Message;
+import com.connectrix_back.connectrix.message.MessageMapper;
+import com.connectrix_back.connectrix.message.MessageRepository;
+import com.connectrix_back.connectrix.message.MessageResponse;
+import com.connectrix_back.connectrix.message.ReadWatermarkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Records, in the writing transaction, the messages, seen watermarks and chats each user has to
+ * learn about, and serves them to reconnecting clients from the sequence they last saw. Events
+ * are kept for the retention window; a client further behind refetches its chats instead.
+ */
+@Service
+@Slf4j
+public class SyncService {
+
+    // users are locked in sorted order so concurrent writes for overlapping users cannot deadlock
+    private static final String NEXT_SEQUENCES = """
+            INSERT INTO user_event_sequences (user_id, last_seq)
+            SELECT u, 1 FROM unnest(CAST(? AS TEXT[])) AS u ORDER BY u
+            ON CONFLICT (user_id) DO UPDATE SET last_seq = user_event_sequences.last_seq + 1
+            RETURNING user_id, last_seq""";
+    private static final String INSERT_EVENT = """
+            INSERT INTO user_events (user_id, seq, ordinal, type, chat_id, message_id, reader_id, last_read_message_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)""";
+    private static final String FIND_LAST_SEQ = "SELECT last_seq FROM user_event_sequences WHERE user_id = ?";
+    private static final String HAS_SEQ = "SELECT EXISTS (SELECT 1 FROM user_events WHERE user_id = ? AND seq = ?)";
+    private static final String FIND_EVENTS = """
+            SELECT user_id, seq, ordinal, type, chat_id, message_id, reader_id, last_read_message_id FROM user_events
+            WHERE user_id = ? AND (seq, ordinal) > (?, ?) AND seq <= ? ORDER BY seq, ordinal LIMIT ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MessageRepository messageRepository;
+    private final ReadWatermarkRepository readWatermarkRepository;
+    private final ChatRepository chatRepository;
+    private final MessageMapper messageMapper;
+    private final ChatMapper chatMapper;
+    private final Duration retention;
+
+    public SyncService(JdbcTemplate jdbcTemplate,
+                       MessageRepository messageRepository,
+                       ReadWatermarkRepository readWatermarkRepository,
+                       ChatRepository chatRepository,
+                       MessageMapper messageMapper,
+                       ChatMapper chatMapper,
+                       @Value("${application.sync.retention}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.messageRepository = messageRepository;
+        this.readWatermarkRepository = readWatermarkRepository;
+        this.chatRepository = chatRepository;
+        this.messageMapper = messageMapper;
+        this.chatMapper = chatMapper;
+        this.retention = retention;
+    }
+
+    @Transactional
+    public void recordMessages(Collection<Message> messages) {
+        final List<SyncEvent> events = new ArrayList<>();
+        for (Message message : messages) {
+            for (String userId : List.of(message.getSenderId(), message.getReceiverId())) {
+                events.add(SyncEvent.builder()
+                        .userId(userId)
+                        .type(SyncEventType.MESSAGE)
+                        .chatId(message.getChat().getId())
+                        .messageId(message.getId())
+                        .build());
+            }
+        }
+        record(events);
+    }
+
+    @Transactional
+    public void recordSeen(String chatId, String readerId, String recipientId, Long lastReadMessageId) {
+        record(List.of(readerId, recipientId).stream()
+                .map(userId -> SyncEvent.builder()
+                        .userId(userId)
+                        .type(SyncEventType.SEEN)
+                        .chatId(chatId)
+                        .readerId(readerId)
+                        .lastReadMessageId(lastReadMessageId)
+                        .build())
+                .toList());
+    }
+
+    @Transactional
+    public void recordChat(Chat chat) {
+        record(List.of(chat.getSender().getId(), chat.getRecipient().getId()).stream()
+                .map(userId -> SyncEvent.builder()
+                        .userId(userId)
+                        .type(SyncEventType.CHAT)
+                        .chatId(chat.getId())
+                        .build())
+                .toList());
+    }
+
+    private void record(List<SyncEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        final TreeSet<String> userIds = events.stream().map(SyncEvent::getUserId).collect(Collectors.toCollection(TreeSet::new));
+        final Map<String, Long> sequences = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            final PreparedStatement statement = con.prepareStatement(NEXT_SEQUENCES);
+            statement.setArray(1, con.createArrayOf("text", userIds.toArray()));
+            return statement;
+        }, (RowCallbackHandler) rs -> sequences.put(rs.getString("user_id"), rs.getLong("last_seq")));
+
+        final Map<String, Integer> ordinals = new HashMap<>();
+        jdbcTemplate.batchUpdate(INSERT_EVENT, events.stream()
+                .map(e -> new Object[]{e.getUserId(), sequences.get(e.getUserId()), ordinals.merge(e.getUserId(), 1, Integer::sum),
+                        e.getType().name(), e.getChatId(), e.getMessageId(), e.getReaderId(), e.getLastReadMessageId()})
+                .toList());
+    }
+
+    @Transactional(readOnly = true)
+    public SyncResponse sync(Long cursor, Integer ordinal, int size, Authentication authentication) {
+        final String userId = authentication.getName();
+        final int pageSize = Math.max(1, Math.min(size, SyncConstants.MAX_PAGE_SIZE));
+        final long lastSeq = jdbcTemplate.query(FIND_LAST_SEQ, rs -> rs.next() ? rs.getLong(1) : 0L, userId);
+
+        // sequences are gap-free, a missing next sequence of the cursor means it was purged;
+        // a cursor inside a transaction needs that transaction's events
+        if (cursor == null || cursor < 0 || cursor > lastSeq
+                || isPurged(userId, ordinal != null ? cursor : cursor + 1, lastSeq)) {
+            return SyncResponse.builder()
+                    .cursor(lastSeq)
+                    .resetRequired(true)
+                    .chats(List.of())
+                    .messages(List.of())
+                    .seen(List.of())
+                    .build();
+        }
+
+        // bounded by events, one more is read to tell whether the page ends inside a transaction
+        final List<SyncEvent> fetched = jdbcTemplate.query(FIND_EVENTS, SyncService::toEvent, userId, cursor,
+                ordinal != null ? ordinal : Integer.MAX_VALUE, lastSeq, pageSize + 1);
+        final boolean hasMore = fetched.size() > pageSize;
+        final List<SyncEvent> events = hasMore ? fetched.subList(0, pageSize) : fetched;
+        final SyncEvent last = hasMore ? events.get(pageSize - 1) : null;
+        final boolean split = hasMore && fetched.get(pageSize).getSeq() == last.getSeq();
+        return SyncResponse.builder()
+                .cursor(hasMore ? last.getSeq() : lastSeq)
+                .ordinal(split ? last.getOrdinal() : null)
+                .hasMore(hasMore)
+                .chats(findChats(events, userId))
+                .messages(findMessages(events))
+                .seen(findSeen(events))
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${application.sync.purge-interval}")
+    public void purgeEvents() {
+        final int purged = jdbcTemplate.update("DELETE FROM user_events WHERE created_at < now() - make_interval(secs => ?)",
+                retention.toSeconds());
+        if (purged > 0) {
+            log.info("Purged {} sync events older than {}", purged, retention);
+        }
+    }
+
+    private boolean isPurged(String userId, long seq, long lastSeq) {
+        return seq <= lastSeq && !Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_SEQ, Boolean.class, userId, seq));
+    }
+
+    private List<ChatResponse> findChats(List<SyncEvent> events, String userId) {
+        final Set<String> chatIds = idsOf(events, SyncEventType.CHAT, SyncEvent::getChatId);
+        if (chatIds.isEmpty()) {
+            return List.of();
+        }
+        return chatMapper.toChatResponses(chatRepository.findChatSummariesByUserId(userId).stream()
+                .filter(c -> chatIds.contains(c.getId()))
+                .toList(), userId);
+    }
+
+    private List<MessageResponse> findMessages(List<SyncEvent> events) {
+        final Set<Long> messageIds = idsOf(events, SyncEventType.MESSAGE, SyncEvent::getMessageId);
+        if (messageIds.isEmpty()) {
+            return List.of();
+        }
+        final Map<Long, Message> messages = messageRepository.findAllById(messageIds).stream()
+                .collect(Collectors.toMap(Message::getId, Function.identity()));
+        final Map<String, ChatReadState> readStates = new HashMap<>();
+        return messageIds.stream()
+                .map(messages::get)
+                .filter(Objects::nonNull)
+                .map(m -> messageMapper.toMessageResponse(m,
+                        readStates.computeIfAbsent(m.getChat().getId(), id -> ChatReadState.of(readWatermarkRepository.findByChatId(id))),
+                        Map.of()))
+                .toList();
+    }
+
+    // only the furthest watermark of each reader in a chat matters
+    private List<SeenWatermark> findSeen(List<SyncEvent> events) {
+        final Map<String, SeenWatermark> seen = new LinkedHashMap<>();
+        events.stream()
+                .filter(e -> e.getType() == SyncEventType.SEEN)
+                .forEach(e -> seen.merge(e.getChatId() + ":" + e.getReaderId(),
+                        SeenWatermark.builder()
+                                .chatId(e.getChatId())
+                                .readerId(e.getReaderId())
+                                .lastReadMessageId(e.getLastReadMessageId())
+                                .build(),
+                        (a, b) -> a.getLastReadMessageId() >= b.getLastReadMessageId() ? a : b));
+        return new ArrayList<>(seen.values());
+    }
+
+    private static <T> Set<T> idsOf(List<SyncEvent> events, SyncEventType type, Function<SyncEvent, T> id) {
+        return events.stream()
+                .filter(e -> e.getType() == type)
+                .map(id)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static SyncEvent toEvent(ResultSet rs, int rowNum) throws SQLException {
+        return SyncEvent.builder()
+                .userId(rs.getString("user_id"))
+                .seq(rs.getLong("seq"))
+                .ordinal(rs.getInt("ordinal"))
+                .type(SyncEventType.valueOf(rs.getString("type")))
+                .chatId(rs.getString("chat_id"))
+                .messageId(rs.getObject("message_id", Long.class))
+                .readerId(rs.getString("reader_id"))
+                .lastReadMessageId(rs.getObject("last_read_message_id", Long.class))
+                .build();
+    }
+}
@@ -8,8 +8,9 @@ import jakarta.persistence.Id;
 import jakarta.persistence.NamedQuery;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
-import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -23,6 +24,7 @@ import java.util.List;
 @NoArgsConstructor
 @Entity
 @Table(name = "users")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = UserConstants.CACHE_REGION)
 @NamedQuery(name = UserConstants.FIND_USER_BY_EMAIL,
         query = "SELECT u FROM User u WHERE u.email = :email"
 )
@@ -32,8 +34,6 @@ import java.util.List;
         query = "SELECT u FROM User u WHERE u.id = :publicId")
 public class User extends BaseAuditingEntity {
 
-    private static final int LAST_ACTIVATE_INTERVAL = 5;
-
     @Id
     private String id;
     private String firstName;
@@ -47,9 +47,4 @@ public class User extends BaseAuditingEntity {
     @OneToMany(mappedBy = "recipient")
     private List<Chat> chatsAsRecipient;
 
-    @Transient
-    public boolean isUserOnline() {
-        return lastSeen != null && lastSeen.isAfter(LocalDateTime.now().minusMinutes(LAST_ACTIVATE_INTERVAL));
-    }
-
 }
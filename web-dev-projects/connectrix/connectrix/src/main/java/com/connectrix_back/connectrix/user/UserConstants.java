@@ -6,6 +6,12 @@ public class UserConstants {
     public static final String FIND_ALL_USERS_EXCEPT_SELF = "Users.findAllUsersExceptSelf";
     public static final String FIND_USER_BY_PUBLIC_ID = "Users.findUserByPublicId";
 
+    public static final String CACHE_REGION = "user";
+
+    public static final int DEFAULT_DIRECTORY_PAGE_SIZE = 20;
+    public static final int MAX_DIRECTORY_PAGE_SIZE = 100;
+    public static final int MAX_DIRECTORY_QUERY_LENGTH = 100;
+
     private UserConstants() {
     }
 }
\ No newline at end of file
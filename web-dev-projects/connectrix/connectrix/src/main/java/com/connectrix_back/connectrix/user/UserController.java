@@ -6,6 +6,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -22,4 +23,14 @@ public class UserController {
     public ResponseEntity<List<UserResponse>> getAllUsers(Authentication authentication) {
         return ResponseEntity.ok(userService.finAllUsersExceptSelf(authentication));
     }
+
+    @GetMapping("/directory")
+    public ResponseEntity<UserDirectoryResponse> getDirectory(
+            @RequestParam(name = "q", required = false) String query,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "" + UserConstants.DEFAULT_DIRECTORY_PAGE_SIZE) int size,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(userService.findDirectoryPage(query, cursor, size, authentication));
+    }
 }
@@ -0,0 +1,54 @@
+package com.connectrix_back.connectrix.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// position in the directory order: lower-cased first name, last name, then id
+@Getter
+@AllArgsConstructor
+public class UserDirectoryCursor {
+
+    private static final String SEPARATOR = ".";
+
+    // sorts before every user, ids are never empty
+    public static final UserDirectoryCursor START = new UserDirectoryCursor("", "", "");
+
+    private final String firstNameKey;
+    private final String lastNameKey;
+    private final String id;
+
+    public static UserDirectoryCursor of(UserDirectoryRow row) {
+        return new UserDirectoryCursor(row.getFirstNameKey(), row.getLastNameKey(), row.getId());
+    }
+
+    public String encode() {
+        return encodePart(firstNameKey) + SEPARATOR + encodePart(lastNameKey) + SEPARATOR + encodePart(id);
+    }
+
+    public static UserDirectoryCursor decode(String cursor) {
+        if (StringUtils.isBlank(cursor)) {
+            return START;
+        }
+        final String[] parts = cursor.split("\\.", -1);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid user directory cursor " + cursor);
+        }
+        try {
+            return new UserDirectoryCursor(decodePart(parts[0]), decodePart(parts[1]), decodePart(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid user directory cursor " + cursor, e);
+        }
+    }
+
+    private static String encodePart(String part) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(part.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodePart(String part) {
+        return new String(Base64.getUrlDecoder().decode(part), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,23 @@
+package com.connectrix_back.connectrix.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserDirectoryEntry {
+
+    private String id;
+    private String firstName;
+    private String lastName;
+    private LocalDateTime lastSeen;
+    private boolean isOnline;
+}
@@ -0,0 +1,21 @@
+package com.connectrix_back.connectrix.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserDirectoryResponse {
+
+    private List<UserDirectoryEntry> users;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,18 @@
+package com.connectrix_back.connectrix.user;
+
+import java.time.LocalDateTime;
+
+public interface UserDirectoryRow {
+
+    String getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    LocalDateTime getLastSeen();
+
+    String getFirstNameKey();
+
+    String getLastNameKey();
+}
@@ -1,13 +1,23 @@
 package com.connectrix_back.connectrix.user;
 
+import com.connectrix_back.connectrix.notification.NotificationRelay;
+import com.connectrix_back.connectrix.presence.PresenceRegistry;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Service
+@RequiredArgsConstructor
 public class UserMapper {
 
+    private final PresenceRegistry presenceRegistry;
+    // connections on other nodes count too
+    private final NotificationRelay notificationRelay;
+
     public User fromTokenAttributes(Map<String, Object> attributes) {
         User user = new User();
 
@@ -32,14 +42,38 @@ public class UserMapper {
         return user;
     }
 
-    public UserResponse toUserResponse(User user) {
+    public List<UserResponse> toUserResponses(List<User> users) {
+        final Set<String> connected = notificationRelay.connectedAmong(users.stream().map(User::getId).toList());
+        return users.stream()
+                .map(user -> toUserResponse(user, connected))
+                .toList();
+    }
+
+    public List<UserDirectoryEntry> toUserDirectoryEntries(List<UserDirectoryRow> rows) {
+        final Set<String> connected = notificationRelay.connectedAmong(rows.stream().map(UserDirectoryRow::getId).toList());
+        return rows.stream()
+                .map(row -> toUserDirectoryEntry(row, connected))
+                .toList();
+    }
+
+    private UserResponse toUserResponse(User user, Set<String> connected) {
         return UserResponse.builder()
                 .id(user.getId())
                 .firstName(user.getFirstName())
                 .lastName(user.getLastName())
                 .email(user.getEmail())
-                .lastSeen(user.getLastSeen())
-                .isOnline(user.isUserOnline())
+                .lastSeen(presenceRegistry.getLastSeen(user.getId()).orElse(user.getLastSeen()))
+                .isOnline(connected.contains(user.getId()))
+                .build();
+    }
+
+    private UserDirectoryEntry toUserDirectoryEntry(UserDirectoryRow row, Set<String> connected) {
+        return UserDirectoryEntry.builder()
+                .id(row.getId())
+                .firstName(row.getFirstName())
+                .lastName(row.getLastName())
+                .lastSeen(presenceRegistry.getLastSeen(row.getId()).orElse(row.getLastSeen()))
+                .isOnline(connected.contains(row.getId()))
                 .build();
     }
 }
@@ -7,7 +7,7 @@ import org.springframework.data.repository.query.Param;
 import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, String> {
 
     @Query(name = UserConstants.FIND_USER_BY_EMAIL)
     Optional<User> findByEmail(@Param("email") String userEmail);
@@ -17,4 +17,39 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query(name = UserConstants.FIND_USER_BY_PUBLIC_ID)
     Optional<User> findByPublicId(@Param("publicId") String senderId);
+
+    @Query(value = """
+            SELECT u.id AS id, u.first_name AS firstName, u.last_name AS lastName, u.last_seen AS lastSeen,
+                   coalesce(lower(u.first_name), '') AS firstNameKey, coalesce(lower(u.last_name), '') AS lastNameKey
+              FROM users u
+             WHERE u.id <> :userId
+               AND (coalesce(lower(u.first_name), ''), coalesce(lower(u.last_name), ''), u.id)
+                   > (:firstNameKey, :lastNameKey, :id)
+             ORDER BY coalesce(lower(u.first_name), ''), coalesce(lower(u.last_name), ''), u.id
+             LIMIT :limit
+            """, nativeQuery = true)
+    List<UserDirectoryRow> findDirectoryPage(@Param("userId") String userId,
+                                             @Param("firstNameKey") String firstNameKey,
+                                             @Param("lastNameKey") String lastNameKey,
+                                             @Param("id") String id,
+                                             @Param("limit") int limit);
+
+    // each prefix match can use its own text_pattern_ops index
+    @Query(value = """
+            SELECT u.id AS id, u.first_name AS firstName, u.last_name AS lastName, u.last_seen AS lastSeen,
+                   coalesce(lower(u.first_name), '') AS firstNameKey, coalesce(lower(u.last_name), '') AS lastNameKey
+              FROM users u
+             WHERE u.id <> :userId
+               AND (lower(u.first_name) LIKE :prefix OR lower(u.last_name) LIKE :prefix OR lower(u.email) LIKE :prefix)
+               AND (coalesce(lower(u.first_name), ''), coalesce(lower(u.last_name), ''), u.id)
+                   > (:firstNameKey, :lastNameKey, :id)
+             ORDER BY coalesce(lower(u.first_name), ''), coalesce(lower(u.last_name), ''), u.id
+             LIMIT :limit
+            """, nativeQuery = true)
+    List<UserDirectoryRow> searchDirectoryPage(@Param("userId") String userId,
+                                               @Param("prefix") String prefix,
+                                               @Param("firstNameKey") String firstNameKey,
+                                               @Param("lastNameKey") String lastNameKey,
+                                               @Param("id") String id,
+                                               @Param("limit") int limit);
 }
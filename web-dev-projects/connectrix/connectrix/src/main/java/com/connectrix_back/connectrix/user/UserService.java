@@ -3,8 +3,10 @@ package com.connectrix_back.connectrix.user;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Locale;
 
 @Service
 @RequiredArgsConstructor
@@ -14,9 +16,37 @@ public class UserService {
     private final UserMapper userMapper;
 
     public List<UserResponse> finAllUsersExceptSelf(Authentication connectedUser) {
-        return userRepository.findAllUsersExceptSelf(connectedUser.getName())
-                .stream()
-                .map(userMapper::toUserResponse)
-                .toList();
+        return userMapper.toUserResponses(userRepository.findAllUsersExceptSelf(connectedUser.getName()));
     }
-}
\ No newline at end of file
+
+    @Transactional(readOnly = true)
+    public UserDirectoryResponse findDirectoryPage(String query, String cursor, int size, Authentication connectedUser) {
+        if (query != null && query.length() > UserConstants.MAX_DIRECTORY_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Directory query is too long");
+        }
+        final int pageSize = Math.max(1, Math.min(size, UserConstants.MAX_DIRECTORY_PAGE_SIZE));
+        final UserDirectoryCursor position = UserDirectoryCursor.decode(cursor);
+        final String userId = connectedUser.getName();
+
+        final List<UserDirectoryRow> rows = query == null || query.isBlank()
+                ? userRepository.findDirectoryPage(userId, position.getFirstNameKey(), position.getLastNameKey(),
+                        position.getId(), pageSize + 1)
+                : userRepository.searchDirectoryPage(userId, toPrefixPattern(query), position.getFirstNameKey(),
+                        position.getLastNameKey(), position.getId(), pageSize + 1);
+        final boolean hasMore = rows.size() > pageSize;
+        final List<UserDirectoryRow> page = hasMore ? rows.subList(0, pageSize) : rows;
+        return UserDirectoryResponse.builder()
+                .users(userMapper.toUserDirectoryEntries(page))
+                .nextCursor(page.isEmpty() ? cursor : UserDirectoryCursor.of(page.get(page.size() - 1)).encode())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private static String toPrefixPattern(String query) {
+        final String escaped = query.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return escaped + "%";
+    }
+}
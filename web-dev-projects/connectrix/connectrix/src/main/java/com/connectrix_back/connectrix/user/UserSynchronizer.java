@@ -1,32 +1,130 @@
 package com.connectrix_back.connectrix.user;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class UserSynchronizer {
 
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final Cache<String, String> syncedTokens;
+    private final ThreadPoolExecutor writer;
+    private final Counter writes;
+    private final Counter droppedWrites;
+
+    public UserSynchronizer(UserRepository userRepository,
+                            UserMapper userMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${application.user-sync.cache.max-size}") long maxSize,
+                            @Value("${application.user-sync.cache.expire-after-access}") Duration expireAfterAccess,
+                            @Value("${application.user-sync.write-queue-capacity}") int writeQueueCapacity) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.syncedTokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(writeQueueCapacity),
+                new CustomizableThreadFactory("user-sync-"));
+        this.writes = meterRegistry.counter("connectrix.user.sync.writes");
+        this.droppedWrites = meterRegistry.counter("connectrix.user.sync.writes.dropped");
+        CaffeineCacheMetrics.monitor(meterRegistry, syncedTokens, "userSync");
+    }
 
     public void synchronizeWithIdp(Jwt token) {
-        log.info("Synchronizing user with idp");
         getUserEmail(token).ifPresent(userEmail -> {
+            final String key = token.getSubject() + ":" + claimsHash(token);
+            final String tokenId = getTokenId(token);
+            final AtomicBoolean refresh = new AtomicBoolean();
+            // concurrent requests with the same claims wait here until a new user is written
+            syncedTokens.asMap().compute(key, (k, synced) -> {
+                if (tokenId.equals(synced)) {
+                    return synced;
+                }
+                if (userRepository.findByEmail(userEmail).isPresent()) {
+                    refresh.set(true);
+                    return tokenId;
+                }
+                return save(userEmail, token.getClaims()) ? tokenId : null;
+            });
+            if (!refresh.get()) {
+                return;
+            }
+            try {
+                writer.execute(() -> persist(key, userEmail, token.getClaims()));
+            } catch (RuntimeException e) {
+                syncedTokens.invalidate(key);
+                droppedWrites.increment();
+                log.warn("User synchronization queue is full, skipping user having email {}", userEmail);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // refreshes of known users are written off the request thread
+    private void persist(String key, String userEmail, Map<String, Object> claims) {
+        if (!save(userEmail, claims)) {
+            syncedTokens.invalidate(key);
+        }
+    }
+
+    private boolean save(String userEmail, Map<String, Object> claims) {
+        try {
             log.info("Synchronizing user having email {}", userEmail);
             Optional<User> optUser = userRepository.findByEmail(userEmail);
-            User user = userMapper.fromTokenAttributes(token.getClaims());
+            User user = userMapper.fromTokenAttributes(claims);
             optUser.ifPresent(value -> user.setId(value.getId()));
             userRepository.save(user);
+            writes.increment();
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Could not synchronize user having email {}", userEmail, e);
+            return false;
+        }
+    }
 
-        });
+    private int claimsHash(Jwt token) {
+        Map<String, Object> attributes = token.getClaims();
+        return Objects.hash(
+                attributes.get("email"),
+                attributes.get("given_name"),
+                attributes.get("family_name"),
+                attributes.get("nickname")
+        );
+    }
 
+    private String getTokenId(Jwt token) {
+        if (token.getId() != null) {
+            return token.getId();
+        }
+        return String.valueOf(token.getIssuedAt());
     }
 
     private Optional<String> getUserEmail(Jwt token) {
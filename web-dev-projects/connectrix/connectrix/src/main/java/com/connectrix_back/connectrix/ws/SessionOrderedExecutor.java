@@ -0,0 +1,151 @@
+package com.connectrix_back.connectrix.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Channel executor that runs the messages of one WebSocket session in order, while different
+ * sessions are spread over a shared pool. Each session has a bounded queue; when it fills up
+ * the {@link SlowConsumerPolicy} decides whether new messages are dropped or the session is closed.
+ */
+@Slf4j
+public class SessionOrderedExecutor implements TaskExecutor {
+
+    private static final int DRAIN_BATCH_SIZE = 32;
+
+    private final String name;
+    private final ThreadPoolExecutor workers;
+    private final int sessionQueueCapacity;
+    private final SlowConsumerPolicy overflowPolicy;
+    private final Consumer<String> disconnector;
+    private final Map<String, SessionQueue> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter dropped;
+    private final Counter disconnected;
+
+    public SessionOrderedExecutor(String name,
+                                  int threads,
+                                  int sessionQueueCapacity,
+                                  SlowConsumerPolicy overflowPolicy,
+                                  Consumer<String> disconnector,
+                                  MeterRegistry meterRegistry) {
+        this.name = name;
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory(name + "-"));
+        this.sessionQueueCapacity = sessionQueueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.disconnector = disconnector;
+        this.dropped = Counter.builder("connectrix.stomp.dispatch.dropped").tag("channel", name).register(meterRegistry);
+        this.disconnected = Counter.builder("connectrix.stomp.dispatch.disconnected").tag("channel", name).register(meterRegistry);
+        Gauge.builder("connectrix.stomp.dispatch.queued", queued, AtomicInteger::get).tag("channel", name).register(meterRegistry);
+        Gauge.builder("connectrix.stomp.dispatch.sessions", sessions, Map::size).tag("channel", name).register(meterRegistry);
+        Gauge.builder("connectrix.stomp.dispatch.active", workers, ThreadPoolExecutor::getActiveCount).tag("channel", name).register(meterRegistry);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        final String sessionId = sessionIdOf(task);
+        if (sessionId == null) {
+            workers.execute(task);
+            return;
+        }
+        while (true) {
+            final SessionQueue queue = sessions.computeIfAbsent(sessionId, SessionQueue::new);
+            synchronized (queue) {
+                if (queue.retired) {
+                    continue;
+                }
+                if (queue.tasks.size() >= sessionQueueCapacity) {
+                    overflow(queue);
+                    return;
+                }
+                queue.tasks.add(task);
+                queued.incrementAndGet();
+                if (!queue.scheduled) {
+                    queue.scheduled = true;
+                    workers.execute(() -> drain(queue));
+                }
+                return;
+            }
+        }
+    }
+
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void overflow(SessionQueue queue) {
+        if (overflowPolicy == SlowConsumerPolicy.DROP || queue.disconnecting) {
+            dropped.increment();
+            log.debug("Dropping {} message for slow session {}", name, queue.sessionId);
+            return;
+        }
+        queue.disconnecting = true;
+        queued.addAndGet(-queue.tasks.size());
+        dropped.increment(queue.tasks.size() + 1);
+        queue.tasks.clear();
+        disconnected.increment();
+        log.warn("Closing session {}: more than {} {} messages pending", queue.sessionId, sessionQueueCapacity, name);
+        disconnector.accept(queue.sessionId);
+    }
+
+    private void drain(SessionQueue queue) {
+        for (int i = 0; i < DRAIN_BATCH_SIZE; i++) {
+            final Runnable task;
+            synchronized (queue) {
+                task = queue.tasks.poll();
+                if (task == null) {
+                    queue.scheduled = false;
+                    queue.retired = true;
+                    sessions.remove(queue.sessionId, queue);
+                    return;
+                }
+            }
+            queued.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Could not dispatch {} message for session {}", name, queue.sessionId, e);
+            }
+        }
+        // give other sessions a turn before continuing with this one
+        workers.execute(() -> drain(queue));
+    }
+
+    private static String sessionIdOf(Runnable task) {
+        if (task instanceof MessageHandlingRunnable runnable) {
+            return SimpMessageHeaderAccessor.getSessionId(runnable.getMessage().getHeaders());
+        }
+        return null;
+    }
+
+    private static final class SessionQueue {
+
+        private final String sessionId;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean retired;
+        private boolean disconnecting;
+
+        private SessionQueue(String sessionId) {
+            this.sessionId = sessionId;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.connectrix_back.connectrix.ws;
+
+public enum SlowConsumerPolicy {
+    DROP,
+    DISCONNECT
+}
@@ -0,0 +1,46 @@
+package com.connectrix_back.connectrix.ws;
+
+import com.connectrix_back.connectrix.security.KeycloakJwtAuthenticationConverter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class WebSocketAuthInterceptor implements ChannelInterceptor {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtDecoder jwtDecoder;
+    private final KeycloakJwtAuthenticationConverter authenticationConverter = new KeycloakJwtAuthenticationConverter();
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+        // the STOMP handler answers a rejected CONNECT with an ERROR frame and closes the session
+        final String authorization = accessor.getFirstNativeHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            throw new AccessDeniedException("Missing bearer token");
+        }
+        final String token = authorization.substring(BEARER_PREFIX.length());
+        try {
+            accessor.setUser(authenticationConverter.convert(jwtDecoder.decode(token)));
+        } catch (JwtException e) {
+            throw new AccessDeniedException("Invalid bearer token", e);
+        }
+        return message;
+    }
+}
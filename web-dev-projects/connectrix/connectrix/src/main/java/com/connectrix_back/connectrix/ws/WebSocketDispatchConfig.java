@@ -0,0 +1,40 @@
+package com.connectrix_back.connectrix.ws;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.CloseStatus;
+
+import java.util.function.Consumer;
+
+@Configuration
+public class WebSocketDispatchConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public SessionOrderedExecutor clientInboundDispatcher(
+            MeterRegistry meterRegistry,
+            WebSocketSessionRegistry webSocketSessionRegistry,
+            @Value("${application.websocket.inbound.threads}") int threads,
+            @Value("${application.websocket.inbound.session-queue-capacity}") int sessionQueueCapacity,
+            @Value("${application.websocket.inbound.overflow-policy}") SlowConsumerPolicy overflowPolicy) {
+        return new SessionOrderedExecutor("inbound", threads, sessionQueueCapacity, overflowPolicy,
+                disconnector(webSocketSessionRegistry), meterRegistry);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public SessionOrderedExecutor clientOutboundDispatcher(
+            MeterRegistry meterRegistry,
+            WebSocketSessionRegistry webSocketSessionRegistry,
+            @Value("${application.websocket.outbound.threads}") int threads,
+            @Value("${application.websocket.outbound.session-queue-capacity}") int sessionQueueCapacity,
+            @Value("${application.websocket.outbound.overflow-policy}") SlowConsumerPolicy overflowPolicy) {
+        return new SessionOrderedExecutor("outbound", threads, sessionQueueCapacity, overflowPolicy,
+                disconnector(webSocketSessionRegistry), meterRegistry);
+    }
+
+    // closed directly, an ERROR frame would wait in the outbound queue that just overflowed
+    private Consumer<String> disconnector(WebSocketSessionRegistry webSocketSessionRegistry) {
+        return sessionId -> webSocketSessionRegistry.close(sessionId, CloseStatus.POLICY_VIOLATION);
+    }
+}
@@ -0,0 +1,24 @@
+-- Per-user log of what changed, read by reconnecting clients instead of refetching every chat.
+-- A transaction takes the next sequence of each user it touches; the sequence row stays locked
+-- until commit, so a user's events become visible in sequence order and without gaps.
+CREATE TABLE IF NOT EXISTS user_event_sequences
+(
+    user_id  VARCHAR(255) PRIMARY KEY,
+    last_seq BIGINT       NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS user_events
+(
+    user_id              VARCHAR(255) NOT NULL,
+    seq                  BIGINT       NOT NULL,
+    ordinal              INTEGER      NOT NULL,
+    type                 VARCHAR(16)  NOT NULL,
+    chat_id              VARCHAR(255) NOT NULL,
+    message_id           BIGINT,
+    reader_id            VARCHAR(255),
+    last_read_message_id BIGINT,
+    created_at           TIMESTAMP    NOT NULL DEFAULT now(),
+    PRIMARY KEY (user_id, seq, ordinal)
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_events_created_at ON user_events (created_at);
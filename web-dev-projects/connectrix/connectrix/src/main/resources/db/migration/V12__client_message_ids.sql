@@ -0,0 +1,14 @@
+-- Client-generated ids of recently sent messages. A unique index on messages would have to
+-- include the partition key, so the ids live in their own table, claimed in the inserting
+-- transaction and purged once retries are no longer expected.
+CREATE TABLE IF NOT EXISTS client_message_ids
+(
+    sender_id         VARCHAR(255) NOT NULL,
+    client_message_id VARCHAR(64)  NOT NULL,
+    message_id        BIGINT       NOT NULL,
+    chat_id           VARCHAR(255) NOT NULL,
+    accepted_at       TIMESTAMP    NOT NULL,
+    PRIMARY KEY (sender_id, client_message_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_client_message_ids_accepted_at ON client_message_ids (accepted_at);
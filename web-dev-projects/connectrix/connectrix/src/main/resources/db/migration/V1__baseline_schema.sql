@@ -0,0 +1,53 @@
+CREATE TABLE IF NOT EXISTS users
+(
+    id                 VARCHAR(255) NOT NULL,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    email              VARCHAR(255),
+    first_name         VARCHAR(255),
+    last_name          VARCHAR(255),
+    last_seen          TIMESTAMP(6),
+    CONSTRAINT users_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS chat
+(
+    id                 VARCHAR(255) NOT NULL,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    recipient_id       VARCHAR(255),
+    sender_id          VARCHAR(255),
+    CONSTRAINT chat_pkey PRIMARY KEY (id),
+    CONSTRAINT fkmyyew1n6wnytn0fgxo99g30mj FOREIGN KEY (recipient_id) REFERENCES users (id),
+    CONSTRAINT fkl5tt48eo95f9i8ngbdk440nml FOREIGN KEY (sender_id) REFERENCES users (id)
+);
+
+CREATE SEQUENCE IF NOT EXISTS msg_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE IF NOT EXISTS messages
+(
+    id                 BIGINT       NOT NULL,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    content            TEXT,
+    media_content_type VARCHAR(255),
+    media_file_path    VARCHAR(255),
+    media_size         BIGINT,
+    receiver_id        VARCHAR(255) NOT NULL,
+    sender_id          VARCHAR(255) NOT NULL,
+    state              VARCHAR(255),
+    type               VARCHAR(255),
+    chat_id            VARCHAR(255),
+    CONSTRAINT messages_pkey PRIMARY KEY (id),
+    CONSTRAINT messages_state_check CHECK (state IN ('SENT', 'SEEN')),
+    CONSTRAINT messages_type_check CHECK (type IN ('TEXT', 'IMAGE', 'VIDEO', 'AUDIO')),
+    CONSTRAINT fkdumcu11xf8ldun8i4xpd04j43 FOREIGN KEY (chat_id) REFERENCES chat (id)
+);
+
+CREATE TABLE IF NOT EXISTS read_watermarks
+(
+    chat_id              VARCHAR(255) NOT NULL,
+    user_id              VARCHAR(255) NOT NULL,
+    last_read_message_id BIGINT       NOT NULL,
+    CONSTRAINT read_watermarks_pkey PRIMARY KEY (chat_id, user_id)
+);
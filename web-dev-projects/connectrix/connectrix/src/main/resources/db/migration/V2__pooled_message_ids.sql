@@ -0,0 +1,3 @@
+-- MessageIdAllocator takes message ids from msg_seq in blocks of its INCREMENT BY on a single
+-- node, nextval() returning the last id of the block; nodes of a cluster use one value per message.
+ALTER SEQUENCE msg_seq INCREMENT BY 50;
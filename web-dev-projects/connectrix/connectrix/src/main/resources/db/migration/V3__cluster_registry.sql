@@ -0,0 +1,19 @@
+-- Which connectrix node holds the WebSocket sessions of which user, for cross-node notification routing
+CREATE TABLE IF NOT EXISTS cluster_nodes (
+    node_id      VARCHAR(64) PRIMARY KEY,
+    heartbeat_at TIMESTAMP   NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS user_nodes (
+    user_id      VARCHAR(255) NOT NULL,
+    node_id      VARCHAR(64)  NOT NULL REFERENCES cluster_nodes (node_id) ON DELETE CASCADE,
+    connected_at TIMESTAMP    NOT NULL,
+    PRIMARY KEY (user_id, node_id)
+);
+
+-- Notifications too large for a NOTIFY payload are parked here and relayed by id
+CREATE TABLE IF NOT EXISTS relayed_notifications (
+    id         BIGSERIAL PRIMARY KEY,
+    payload    TEXT      NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT now()
+);
@@ -0,0 +1,10 @@
+-- Uploaded media is stored once per content hash and shared by every message that references it
+CREATE TABLE IF NOT EXISTS media_objects (
+    hash         VARCHAR(64)  PRIMARY KEY,
+    file_path    VARCHAR(255) NOT NULL,
+    size         BIGINT       NOT NULL,
+    ref_count    INTEGER      NOT NULL,
+    created_date TIMESTAMP    NOT NULL DEFAULT now()
+);
+
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS media_hash VARCHAR(64);
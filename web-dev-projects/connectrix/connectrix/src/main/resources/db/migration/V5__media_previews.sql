@@ -0,0 +1,2 @@
+-- Tiny blurred JPEG (as a data URI) shown while the preview of an image message loads
+ALTER TABLE media_objects ADD COLUMN IF NOT EXISTS placeholder TEXT;
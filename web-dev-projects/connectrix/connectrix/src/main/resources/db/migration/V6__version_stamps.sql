@@ -0,0 +1,5 @@
+-- Versions of per-chat history and per-user chat lists, served as ETags for conditional GETs
+CREATE TABLE IF NOT EXISTS version_stamps (
+    stamp_key VARCHAR(300) PRIMARY KEY,
+    version   BIGINT       NOT NULL
+);
@@ -0,0 +1,6 @@
+-- Full-text search over message content. The 'simple' configuration does no stemming or stop
+-- words, chats are written in many languages.
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS content_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('simple', coalesce(content, ''))) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_messages_content_tsv ON messages USING GIN (content_tsv);
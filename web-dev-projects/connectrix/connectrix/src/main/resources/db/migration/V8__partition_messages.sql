@@ -0,0 +1,83 @@
+-- Messages are range partitioned by month of created_date, so history pages only touch the
+-- months they read and whole months can be archived and dropped. Postgres requires the partition
+-- key in the primary key; ids keep coming from msg_seq and stay unique in practice.
+ALTER TABLE messages RENAME TO messages_unpartitioned;
+ALTER INDEX messages_pkey RENAME TO messages_unpartitioned_pkey;
+ALTER INDEX idx_messages_content_tsv RENAME TO idx_messages_unpartitioned_content_tsv;
+
+CREATE TABLE messages
+(
+    id                 BIGINT       NOT NULL,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    content            TEXT,
+    media_content_type VARCHAR(255),
+    media_file_path    VARCHAR(255),
+    media_size         BIGINT,
+    receiver_id        VARCHAR(255) NOT NULL,
+    sender_id          VARCHAR(255) NOT NULL,
+    state              VARCHAR(255),
+    type               VARCHAR(255),
+    chat_id            VARCHAR(255),
+    media_hash         VARCHAR(64),
+    content_tsv        tsvector GENERATED ALWAYS AS (to_tsvector('simple', coalesce(content, ''))) STORED,
+    CONSTRAINT messages_pkey PRIMARY KEY (id, created_date),
+    CONSTRAINT messages_state_check CHECK (state IN ('SENT', 'SEEN')),
+    CONSTRAINT messages_type_check CHECK (type IN ('TEXT', 'IMAGE', 'VIDEO', 'AUDIO')),
+    CONSTRAINT fkdumcu11xf8ldun8i4xpd04j43 FOREIGN KEY (chat_id) REFERENCES chat (id)
+) PARTITION BY RANGE (created_date);
+
+-- catches rows outside the maintained months until MessagePartitionService creates them
+CREATE TABLE messages_default PARTITION OF messages DEFAULT;
+
+DO
+$$
+    DECLARE
+        month DATE;
+    BEGIN
+        FOR month IN
+            SELECT generate_series(
+                           date_trunc('month', coalesce((SELECT min(created_date) FROM messages_unpartitioned), now())),
+                           date_trunc('month', now()) + INTERVAL '2 months',
+                           INTERVAL '1 month')::DATE
+            LOOP
+                EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF messages FOR VALUES FROM (%L) TO (%L)',
+                               'messages_p' || to_char(month, 'YYYY_MM'), month, month + INTERVAL '1 month');
+            END LOOP;
+    END
+$$;
+
+INSERT INTO messages (id, created_date, last_modified_date, content, media_content_type, media_file_path,
+                      media_size, receiver_id, sender_id, state, type, chat_id, media_hash)
+SELECT id, created_date, last_modified_date, content, media_content_type, media_file_path,
+       media_size, receiver_id, sender_id, state, type, chat_id, media_hash
+FROM messages_unpartitioned;
+
+DROP TABLE messages_unpartitioned;
+
+CREATE INDEX IF NOT EXISTS idx_messages_content_tsv ON messages USING GIN (content_tsv);
+CREATE INDEX IF NOT EXISTS idx_messages_chat_created ON messages (chat_id, created_date, id);
+
+-- Months moved out of the database by the archive job. Each segment file holds one gzip member
+-- per chat, message_archive_chats locates a chat's member within the file.
+CREATE TABLE IF NOT EXISTS message_archive_segments
+(
+    month         DATE         PRIMARY KEY,
+    file_path     VARCHAR(255) NOT NULL,
+    message_count BIGINT       NOT NULL,
+    archived_at   TIMESTAMP    NOT NULL DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS message_archive_chats
+(
+    chat_id       VARCHAR(255) NOT NULL,
+    month         DATE         NOT NULL REFERENCES message_archive_segments (month),
+    byte_offset   BIGINT       NOT NULL,
+    byte_length   INTEGER      NOT NULL,
+    message_count INTEGER      NOT NULL,
+    min_id        BIGINT       NOT NULL,
+    max_id        BIGINT       NOT NULL,
+    PRIMARY KEY (chat_id, month)
+);
+
+CREATE INDEX IF NOT EXISTS idx_message_archive_chats_ids ON message_archive_chats (min_id, max_id);
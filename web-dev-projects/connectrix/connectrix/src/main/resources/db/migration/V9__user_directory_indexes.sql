@@ -0,0 +1,8 @@
+-- User directory: browsing walks the sort key index in order, prefix search combines one
+-- text_pattern_ops index per searched field
+CREATE INDEX IF NOT EXISTS idx_users_directory
+    ON users ((coalesce(lower(first_name), '')), (coalesce(lower(last_name), '')), id);
+
+CREATE INDEX IF NOT EXISTS idx_users_first_name_prefix ON users (lower(first_name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_users_last_name_prefix ON users (lower(last_name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_users_email_prefix ON users (lower(email) text_pattern_ops);
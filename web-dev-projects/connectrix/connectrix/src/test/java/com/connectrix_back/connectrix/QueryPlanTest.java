@@ -0,0 +1,130 @@
+package com.connectrix_back.connectrix;
+
+import com.connectrix_back.connectrix.chat.ChatRepository;
+import com.connectrix_back.connectrix.message.MessageRepository;
+import com.connectrix_back.connectrix.message.ReadWatermarkRepository;
+import com.connectrix_back.connectrix.user.UserRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the hot repository queries on seeded data, records the SQL Hibernate sends and fails if
+ * the plan of any statement contains a sequential scan. Sequential scans are disabled for the
+ * check, so a table only shows up as one when no index can serve the query at all.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.connectrix_back.connectrix.QueryPlanTest$RecordingStatementInspector")
+@Transactional
+class QueryPlanTest {
+
+    private static final int USERS = 2_000;
+    private static final int MESSAGES = 20_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private ChatRepository chatRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ReadWatermarkRepository readWatermarkRepository;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("""
+                INSERT INTO users (id, created_date, first_name, last_name, email)
+                SELECT 'plan-user-' || g, now(), 'First' || g, 'Last' || g, 'plan' || g || '@example.com'
+                FROM generate_series(1, ?) g""", USERS);
+        jdbcTemplate.update("""
+                INSERT INTO chat (id, created_date, sender_id, recipient_id)
+                SELECT 'plan-chat-' || g, now(), 'plan-user-' || g, 'plan-user-' || (g + 1)
+                FROM generate_series(1, ? - 1) g""", USERS);
+        jdbcTemplate.update("""
+                INSERT INTO messages (id, created_date, content, sender_id, receiver_id, state, type, chat_id)
+                SELECT -g, now() - make_interval(secs => g), 'message ' || g, 'plan-user-' || (g % ? + 1),
+                       'plan-user-' || (g % ? + 2), 'SENT', 'TEXT', 'plan-chat-' || (g % ? + 1)
+                FROM generate_series(1, ?) g""", USERS - 1, USERS - 1, USERS - 1, MESSAGES);
+        jdbcTemplate.update("""
+                INSERT INTO read_watermarks (chat_id, user_id, last_read_message_id)
+                SELECT 'plan-chat-' || g, 'plan-user-' || g, -1 FROM generate_series(1, ? - 1) g""", USERS);
+        jdbcTemplate.execute("ANALYZE users, chat, messages, read_watermarks");
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        jdbcTemplate.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+        RecordingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void hotQueriesDoNotScanWholeTables() {
+        final String chatId = "plan-chat-42";
+        final LocalDateTime cursorDate = LocalDateTime.now().minusSeconds(MESSAGES / 2);
+        messageRepository.findMessagesByChatId(chatId);
+        messageRepository.findLatestMessagesByChatId(chatId, Limit.of(50));
+        messageRepository.findEarliestMessagesByChatId(chatId, Limit.of(50));
+        messageRepository.findMessagesBeforeCursor(chatId, cursorDate, -100L, Limit.of(50));
+        messageRepository.findMessagesAfterCursor(chatId, cursorDate, -100L, Limit.of(50));
+        messageRepository.findLatestMessageId(chatId);
+        messageRepository.findExistingIds(List.of(-1L, -2L, -3L));
+        chatRepository.findChatsBySenderId("plan-user-42");
+        chatRepository.findChatPartnerIds("plan-user-42");
+        chatRepository.findChatByReceiverAndSender("plan-user-43", "plan-user-42");
+        chatRepository.findChatSummariesByUserId("plan-user-42");
+        userRepository.findByEmail("plan42@example.com");
+        userRepository.findByPublicId("plan-user-42");
+        readWatermarkRepository.findByChatId(chatId);
+
+        final List<String> statements = RecordingStatementInspector.STATEMENTS.stream().distinct().toList();
+        assertThat(statements).isNotEmpty();
+        for (String sql : statements) {
+            assertThat(explain(sql)).as(sql).doesNotContain("Seq Scan");
+        }
+    }
+
+    // a forced generic plan is what a pooled prepared statement ends up with, whatever the values
+    private String explain(String sql) {
+        final StringBuilder numbered = new StringBuilder();
+        int parameters = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++parameters);
+            } else {
+                numbered.append(c);
+            }
+        }
+        jdbcTemplate.execute("PREPARE plan_check AS " + numbered);
+        try {
+            final String arguments = parameters == 0 ? "" : "(" + String.join(", ", Collections.nCopies(parameters, "NULL")) + ")";
+            return String.join("\n", jdbcTemplate.queryForList("EXPLAIN EXECUTE plan_check" + arguments, String.class));
+        } finally {
+            jdbcTemplate.execute("DEALLOCATE plan_check");
+        }
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.stripLeading().toLowerCase(Locale.ROOT).startsWith("select")) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
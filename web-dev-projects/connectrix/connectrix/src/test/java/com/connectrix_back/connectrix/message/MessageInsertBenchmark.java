@@ -0,0 +1,138 @@
+package com.connectrix_back.connectrix.message;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Compares message ingest throughput of the old write path (one nextval and
+ * one committed INSERT per message) with pooled ids and batched inserts.
+ * Needs a local Postgres:
+ * {@code mvn test -Dtest=MessageInsertBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MessageInsertBenchmark {
+
+    private static final int MESSAGES = Integer.getInteger("benchmark.messages", 20_000);
+    private static final int BATCH_SIZE = 50;
+
+    private static final String INSERT = "INSERT INTO bench_messages (id, created_date, content, state, type, chat_id, sender_id, receiver_id) "
+            + "VALUES (?, ?, ?, 'SENT', 'TEXT', 'bench-chat', 'sender', 'receiver')";
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.url", "jdbc:postgresql://localhost:5432/connectrix?reWriteBatchedInserts=true"),
+                System.getProperty("benchmark.user", "postgres"),
+                System.getProperty("benchmark.password", "arpreet2107"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_messages");
+            statement.execute("CREATE TABLE bench_messages (id BIGINT PRIMARY KEY, created_date TIMESTAMP(6) NOT NULL, "
+                    + "content TEXT, state VARCHAR(255), type VARCHAR(255), chat_id VARCHAR(255), "
+                    + "sender_id VARCHAR(255) NOT NULL, receiver_id VARCHAR(255) NOT NULL)");
+            statement.execute("DROP SEQUENCE IF EXISTS bench_seq_single");
+            statement.execute("DROP SEQUENCE IF EXISTS bench_seq_pooled");
+            statement.execute("CREATE SEQUENCE bench_seq_single INCREMENT BY 1");
+            statement.execute("CREATE SEQUENCE bench_seq_pooled INCREMENT BY " + BATCH_SIZE);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_messages");
+            statement.execute("DROP SEQUENCE IF EXISTS bench_seq_single");
+            statement.execute("DROP SEQUENCE IF EXISTS bench_seq_pooled");
+        }
+        connection.close();
+    }
+
+    @Test
+    void compareInsertStrategies() throws SQLException {
+        final double single = measure(this::insertOneByOne);
+        truncate();
+        final double pooled = measure(this::insertPooledAndBatched);
+
+        System.out.printf("allocationSize=1, one insert per transaction : %,.0f messages/sec%n", single);
+        System.out.printf("allocationSize=%d, batched inserts          : %,.0f messages/sec%n", BATCH_SIZE, pooled);
+    }
+
+    private void insertOneByOne() throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement nextId = connection.prepareStatement("SELECT nextval('bench_seq_single')");
+             PreparedStatement insert = connection.prepareStatement(INSERT)) {
+            for (int i = 0; i < MESSAGES; i++) {
+                bind(insert, nextValue(nextId), i);
+                insert.executeUpdate();
+                connection.commit();
+            }
+        }
+    }
+
+    private void insertPooledAndBatched() throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement nextId = connection.prepareStatement("SELECT nextval('bench_seq_pooled')");
+             PreparedStatement insert = connection.prepareStatement(INSERT)) {
+            long hi = 0;
+            long next = 1;
+            for (int i = 0; i < MESSAGES; i++) {
+                if (next > hi) {
+                    hi = nextValue(nextId);
+                    next = hi - BATCH_SIZE + 1;
+                }
+                bind(insert, next++, i);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+    }
+
+    private double measure(SqlRunnable run) throws SQLException {
+        final long start = System.nanoTime();
+        run.run();
+        final double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+        return MESSAGES / seconds;
+    }
+
+    private void truncate() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE bench_messages");
+        }
+        connection.commit();
+    }
+
+    private long nextValue(PreparedStatement nextId) throws SQLException {
+        try (ResultSet rs = nextId.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private void bind(PreparedStatement insert, long id, int i) throws SQLException {
+        insert.setLong(1, id);
+        insert.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+        insert.setString(3, "benchmark message " + i);
+    }
+
+    @FunctionalInterface
+    private interface SqlRunnable {
+        void run() throws SQLException;
+    }
+}
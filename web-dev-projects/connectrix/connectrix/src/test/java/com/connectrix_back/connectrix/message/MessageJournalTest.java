@@ -0,0 +1,141 @@
+package com.connectrix_back.connectrix.message;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class MessageJournalTest {
+
+    private final Timer commitTimer = new SimpleMeterRegistry().timer("journal.commit");
+
+    @TempDir
+    private Path directory;
+
+    private MessageJournal journal;
+
+    @AfterEach
+    void tearDown() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void appendsAreDurableRecordsInOrder() throws Exception {
+        journal = open(0, 1024 * 1024);
+
+        final MessageJournal.Segment first = journal.append(List.of(record("a"), record("b"))).get(5, TimeUnit.SECONDS);
+        final MessageJournal.Segment second = journal.append(List.of(record("c"))).get(5, TimeUnit.SECONDS);
+
+        assertThat(second).isSameAs(first);
+        assertThat(readAll()).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void readsATornTailAsItsLastLine() throws IOException {
+        final Path segment = directory.resolve("messages-3.log");
+        Files.writeString(segment, "{\"id\":1}\n\n{\"id\":2}\n{\"id\":3,\"cha", StandardCharsets.UTF_8);
+
+        final List<String> lines = new ArrayList<>();
+        MessageJournal.readRecords(segment, lines::add);
+
+        // blank lines are skipped, the torn record is left for the caller to reject
+        assertThat(lines).containsExactly("{\"id\":1}", "{\"id\":2}", "{\"id\":3,\"cha");
+        assertThat(MessageJournal.listSegments(directory)).containsExactly(segment);
+        assertThat(MessageJournal.sequenceOf(segment)).isEqualTo(3);
+    }
+
+    @Test
+    void deletesARolledSegmentOnceEveryRecordIsReleased() throws Exception {
+        // every commit fills a segment, so each append rolls to the next one
+        journal = open(7, 1);
+
+        final MessageJournal.Segment segment = journal.append(List.of(record("a"), record("b"))).get(5, TimeUnit.SECONDS);
+        // the append completes before the committer rolls the segment
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertThat(segmentNames()).containsExactly("messages-7.log", "messages-8.log"));
+
+        journal.release(segment, 1);
+        assertThat(segmentNames()).containsExactly("messages-7.log", "messages-8.log");
+
+        journal.release(segment, 1);
+        assertThat(segmentNames()).containsExactly("messages-8.log");
+        assertThat(journal.segmentCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsUnreleasedRecordsForReplayAfterClose() throws Exception {
+        journal = open(0, 1024 * 1024);
+        journal.append(List.of(record("a"))).get(5, TimeUnit.SECONDS);
+
+        journal.close();
+        journal = null;
+
+        assertThat(segmentNames()).containsExactly("messages-0.log");
+        assertThat(readAll()).containsExactly("a");
+    }
+
+    @Test
+    void deletesTheActiveSegmentOnCloseWhenDrained() throws Exception {
+        journal = open(0, 1024 * 1024);
+        final MessageJournal.Segment segment = journal.append(List.of(record("a"))).get(5, TimeUnit.SECONDS);
+        journal.release(segment, 1);
+
+        journal.close();
+        journal = null;
+
+        assertThat(MessageJournal.listSegments(directory)).isEmpty();
+    }
+
+    @Test
+    void rejectsAppendsAfterClose() throws IOException {
+        journal = open(0, 1024 * 1024);
+        journal.close();
+
+        final CompletableFuture<MessageJournal.Segment> append = journal.append(List.of(record("a")));
+        journal = null;
+
+        assertThatThrownBy(() -> append.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    private MessageJournal open(long firstSequence, long maxSegmentBytes) throws IOException {
+        return new MessageJournal(directory, firstSequence, Duration.ofMillis(1), maxSegmentBytes, commitTimer);
+    }
+
+    private List<String> segmentNames() throws IOException {
+        return MessageJournal.listSegments(directory).stream()
+                .map(path -> path.getFileName().toString())
+                .toList();
+    }
+
+    private List<String> readAll() throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (Path segment : MessageJournal.listSegments(directory)) {
+            MessageJournal.readRecords(segment, lines::add);
+        }
+        return lines;
+    }
+
+    private static byte[] record(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,147 @@
+package com.connectrix_back.connectrix.message;
+
+import com.connectrix_back.connectrix.chat.Chat;
+import com.connectrix_back.connectrix.chat.ChatRepository;
+import com.connectrix_back.connectrix.common.VersionStampService;
+import com.connectrix_back.connectrix.notification.NotificationService;
+import com.connectrix_back.connectrix.sync.SyncService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replays journal segments left by a previous run against mocked repositories: records are
+ * inserted once however many segments hold them, rows already in the table and torn records are
+ * skipped, and the replayed segments are deleted.
+ */
+class WriteBehindMessageWriterTest {
+
+    private static final String CHAT_ID = "chat-1";
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final ChatRepository chatRepository = mock(ChatRepository.class);
+    private final MessageDeduplicator messageDeduplicator = mock(MessageDeduplicator.class);
+    private final List<Long> inserted = new ArrayList<>();
+
+    @TempDir
+    private Path journalPath;
+
+    private WriteBehindMessageWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        final Chat chat = new Chat();
+        chat.setId(CHAT_ID);
+        when(chatRepository.getReferenceById(anyString())).thenReturn(chat);
+        when(messageDeduplicator.claim(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(messageRepository.saveAll(any())).thenAnswer(invocation -> {
+            final Iterable<Message> messages = invocation.getArgument(0);
+            messages.forEach(m -> inserted.add(m.getId()));
+            return messages;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void replaysEachJournaledMessageOnce() throws Exception {
+        writeSegment(0, record(1, "first"), record(2, "second"));
+        // a record can be journaled twice when a segment is replayed but not yet deleted
+        writeSegment(1, record(2, "second"), record(3, "third"));
+        when(messageRepository.findExistingIds(anyList())).thenReturn(List.of());
+
+        start();
+
+        assertThat(inserted).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void skipsRowsAlreadyInTheTableAndTornRecords() throws Exception {
+        writeSegment(4, record(1, "first"), record(2, "second"), "{\"id\":3,\"chatId\":\"cha");
+        when(messageRepository.findExistingIds(anyList())).thenReturn(List.of(1L));
+
+        start();
+
+        assertThat(inserted).containsExactly(2L);
+    }
+
+    @Test
+    void deletesReplayedSegmentsAndContinuesTheSequence() throws Exception {
+        writeSegment(4, record(1, "first"));
+        writeSegment(5, record(2, "second"));
+        when(messageRepository.findExistingIds(anyList())).thenReturn(List.of());
+
+        start();
+
+        assertThat(MessageJournal.listSegments(journalPath))
+                .extracting(path -> path.getFileName().toString())
+                .containsExactly("messages-6.log");
+    }
+
+    private void start() throws Exception {
+        writer = new WriteBehindMessageWriter(
+                messageRepository,
+                chatRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(VersionStampService.class),
+                mock(SyncService.class),
+                messageDeduplicator,
+                mock(RecentMessageBuffer.class),
+                mock(NotificationService.class),
+                objectMapper,
+                new SimpleMeterRegistry(),
+                journalPath,
+                Duration.ofMillis(1),
+                DataSize.ofMegabytes(1),
+                100,
+                500,
+                Duration.ofMillis(50));
+        writer.start();
+    }
+
+    private void writeSegment(long sequence, String... records) throws Exception {
+        Files.writeString(journalPath.resolve("messages-" + sequence + ".log"),
+                String.join("\n", records), StandardCharsets.UTF_8);
+    }
+
+    private String record(long id, String content) throws Exception {
+        return objectMapper.writeValueAsString(MessageJournalRecord.builder()
+                .id(id)
+                .chatId(CHAT_ID)
+                .content(content)
+                .state(MessageState.SENT)
+                .type(MessageType.TEXT)
+                .senderId("sender")
+                .receiverId("receiver")
+                .acceptedDate(LocalDateTime.of(2026, 1, 1, 12, 0).plusSeconds(id))
+                .build());
+    }
+}